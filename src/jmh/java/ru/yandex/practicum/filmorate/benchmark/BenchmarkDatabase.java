@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.MpaRatingRowMapper;
+import ru.yandex.practicum.filmorate.repository.repository.*;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
+import ru.yandex.practicum.filmorate.storage.cacheStorage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.facetStorage.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.TrendingLikeCounter;
+import ru.yandex.practicum.filmorate.storage.referenceStorage.ReferenceDataRegistry;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * H2 в памяти со схемой приложения, заполненная синтетическими данными заданного размера,
+ * и собранные вручную (без Spring-контекста) репозитории и FilmService поверх неё.
+ * Данные детерминированы: одно и то же зерно даёт одинаковую базу для сравнения запусков.
+ */
+final class BenchmarkDatabase {
+
+    static final int GENRES = 6;
+    static final int MPA_RATINGS = 5;
+    static final int LIKES_PER_FILM = 20;
+    static final int FRIENDS_PER_USER = 20;
+
+    private static final int BATCH = 5_000;
+
+    final int size;
+    final JdbcTemplate jdbc;
+    final GenreRepository genreRepository;
+    final MpaRatingRepository mpaRepository;
+    final FilmRepository filmRepository;
+    final UserRepository userRepository;
+    final LikeRepository likeRepository;
+    final FriendRepository friendRepository;
+    final FilmPopularityIndex popularityIndex;
+    final FilmSearchIndex searchIndex;
+    final FilmSuggestIndex suggestIndex;
+    final FilmFacetIndex facetIndex;
+    final TrendingLikeCounter trendingCounter;
+    final ReferenceDataRegistry referenceData;
+    final FilmService filmService;
+
+    private BenchmarkDatabase(int size) {
+        this.size = size;
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:bench" + size + ";DB_CLOSE_DELAY=-1", "sa", "");
+        this.jdbc = new JdbcTemplate(dataSource);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+
+        FilmCache filmCache = new FilmCache(10_000);
+        this.genreRepository = new GenreRepository(jdbc, filmCache);
+        this.mpaRepository = new MpaRatingRepository(jdbc, new MpaRatingRowMapper());
+        this.filmRepository = new FilmRepository(jdbc, new FilmRowMapper(), genreRepository, mpaRepository, filmCache);
+        this.userRepository = new UserRepository(jdbc);
+        LikeWriteBuffer writeBuffer = new LikeWriteBuffer(jdbc, new DataSourceTransactionManager(dataSource), false, 0);
+        this.likeRepository = new LikeRepository(jdbc, writeBuffer);
+        this.friendRepository = new FriendRepository(jdbc);
+        this.popularityIndex = new FilmPopularityIndex(likeRepository, filmRepository, genreRepository);
+        this.trendingCounter = new TrendingLikeCounter(likeRepository, Duration.ofHours(1), Duration.ofDays(7));
+        this.searchIndex = new FilmSearchIndex(filmRepository, popularityIndex);
+        this.suggestIndex = new FilmSuggestIndex(filmRepository);
+        this.facetIndex = new FilmFacetIndex(filmRepository);
+        this.referenceData = new ReferenceDataRegistry(genreRepository, mpaRepository);
+        this.filmService = new FilmService(filmRepository, genreRepository, likeRepository, userRepository,
+                new GenreService(referenceData), new MpaService(referenceData), popularityIndex, trendingCounter,
+                searchIndex, suggestIndex, facetIndex);
+    }
+
+    // size — число фильмов и пользователей
+    static BenchmarkDatabase seeded(int size) {
+        BenchmarkDatabase db = new BenchmarkDatabase(size);
+        db.seed(new Random(size));
+        db.referenceData.reload();
+        db.popularityIndex.rebuild();
+        db.searchIndex.rebuild();
+        db.suggestIndex.rebuild();
+        db.facetIndex.rebuild();
+        db.trendingCounter.rebuild();
+        return db;
+    }
+
+    private void seed(Random random) {
+        List<Object[]> users = new ArrayList<>();
+        List<Object[]> films = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            users.add(new Object[]{i, "user" + i + "@mail.ru", "user" + i, "Пользователь " + i,
+                    Date.valueOf(LocalDate.of(1970, 1, 1).plusDays(random.nextInt(15_000)))});
+            films.add(new Object[]{i, "Фильм " + i, "Описание фильма " + i,
+                    Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27_000))),
+                    60 + random.nextInt(120), 1 + random.nextInt(MPA_RATINGS)});
+        }
+        batch("INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", users);
+        batch("INSERT INTO films (film_id, name, description, release_date, duration, rating_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?)", films);
+
+        List<Object[]> genres = new ArrayList<>();
+        List<Object[]> likes = new ArrayList<>();
+        List<Object[]> friends = new ArrayList<>();
+        Instant now = Instant.now();
+        for (int i = 1; i <= size; i++) {
+            int first = 1 + random.nextInt(GENRES);
+            genres.add(new Object[]{i, first});
+            if (random.nextBoolean()) {
+                genres.add(new Object[]{i, first % GENRES + 1});
+            }
+            // Длинный хвост: у большинства фильмов несколько лайков, у немногих — в 5 раз больше среднего
+            int filmLikes = Math.min(size, (int) (LIKES_PER_FILM / 4 / Math.max(0.05, random.nextDouble())));
+            int offset = random.nextInt(size);
+            for (int j = 0; j < filmLikes; j++) {
+                likes.add(new Object[]{i, (offset + j) % size + 1,
+                        Timestamp.from(now.minusSeconds(random.nextInt(14 * 24 * 3600)))});
+            }
+            for (int j = 1; j <= Math.min(FRIENDS_PER_USER, size - 1); j++) {
+                int friendId = (i + j * 7 - 1) % size + 1;
+                if (friendId != i) {
+                    friends.add(new Object[]{i, friendId});
+                }
+            }
+            if (likes.size() >= BATCH) {
+                batch("INSERT INTO likes (film_id, user_id, created_at) VALUES (?, ?, ?)", likes);
+            }
+        }
+        batch("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genres);
+        batch("INSERT INTO likes (film_id, user_id, created_at) VALUES (?, ?, ?)", likes);
+        batch("MERGE INTO friends (user_id, friend_id) KEY(user_id, friend_id) VALUES (?, ?)", friends);
+        recountLikes();
+        // Копия исходных лайков, чтобы пишущие бенчмарки могли вернуть базу в начальное состояние
+        jdbc.execute("CREATE TABLE likes_seed AS SELECT film_id, user_id FROM likes");
+        jdbc.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + (size + 1));
+        jdbc.execute("ALTER TABLE films ALTER COLUMN film_id RESTART WITH " + (size + 1));
+    }
+
+    // Удалить лайки, поставленные после заполнения, и пересчитать счётчики и рейтинг
+    void resetLikes() {
+        jdbc.update("DELETE FROM likes l WHERE NOT EXISTS "
+                + "(SELECT 1 FROM likes_seed s WHERE s.film_id = l.film_id AND s.user_id = l.user_id)");
+        recountLikes();
+        popularityIndex.rebuild();
+        trendingCounter.rebuild();
+    }
+
+    private void recountLikes() {
+        jdbc.update("UPDATE films f SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.film_id)");
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH) {
+            jdbc.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH)));
+        }
+        rows.clear();
+    }
+}
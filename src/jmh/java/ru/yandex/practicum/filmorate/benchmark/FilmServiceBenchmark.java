@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.film.Film;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Горячие пути FilmService: топ популярных и постановка лайка.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmServiceBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private BenchmarkDatabase db;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        db = BenchmarkDatabase.seeded(size);
+    }
+
+    // Лайки, поставленные за итерацию, откатываются, чтобы каждая итерация видела одни и те же данные
+    @TearDown(Level.Iteration)
+    public void resetLikes() {
+        db.resetLikes();
+    }
+
+    @Benchmark
+    public Collection<Film> topMostLikedFilms() {
+        return db.filmService.getTopMostLikedFilms(10, null, null);
+    }
+
+    @Benchmark
+    public Collection<Film> topMostLikedFilmsByGenreAndYear() {
+        return db.filmService.getTopMostLikedFilms(10, 2, 1990);
+    }
+
+    @Benchmark
+    public void addLike(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int filmId = 1 + random.nextInt(size);
+        int userId = 1 + random.nextInt(size);
+        db.filmService.addLike(filmId, userId);
+        blackhole.consume(filmId);
+    }
+}
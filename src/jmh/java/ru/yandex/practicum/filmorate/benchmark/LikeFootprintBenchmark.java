@@ -0,0 +1,128 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.bitmap.CompressedIntSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Память и скорость пересечения для лайков фильмов: Map<Integer, Set<Integer>>
+ * против сжатых множеств CompressedIntSet на одинаковых синтетических данных.
+ * Удерживаемый объём кучи на лайк выводится доп. счётчиком bytesPerLike рядом со временем
+ * countLikes. Замер кучи грубый (разница после System.gc()), для сравнения представлений его достаточно.
+ * Запуск: mvn -P benchmark test-compile exec:exec -Djmh.args="LikeFootprintBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LikeFootprintBenchmark {
+
+    @Param({"hashSet", "compressed"})
+    private String representation;
+
+    @Param({"10000"})
+    private int films;
+
+    @Param({"1000000"})
+    private int users;
+
+    @Param({"500"})
+    private int likesPerFilm;
+
+    private Map<Integer, Set<Integer>> hashSets;
+    private Map<Integer, CompressedIntSet> bitmaps;
+    private long bytesPerLike;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = usedHeap();
+        if ("hashSet".equals(representation)) {
+            hashSets = new HashMap<>();
+            fill((filmId, userId) -> hashSets.computeIfAbsent(filmId, id -> new HashSet<>()).add(userId));
+        } else {
+            bitmaps = new HashMap<>();
+            fill((filmId, userId) -> bitmaps.computeIfAbsent(filmId, id -> new CompressedIntSet()).add(userId));
+        }
+        bytesPerLike = (usedHeap() - before) / ((long) films * likesPerFilm);
+    }
+
+    // Число пользователей, лайкнувших оба фильма: основа рекомендаций «похожие фильмы»
+    @Benchmark
+    public int countCommonLikes() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = 1 + random.nextInt(films);
+        int second = 1 + random.nextInt(films);
+        if (hashSets != null) {
+            Set<Integer> smaller = hashSets.get(first);
+            Set<Integer> larger = hashSets.get(second);
+            if (smaller.size() > larger.size()) {
+                Set<Integer> swap = smaller;
+                smaller = larger;
+                larger = swap;
+            }
+            int common = 0;
+            for (Integer userId : smaller) {
+                if (larger.contains(userId)) {
+                    common++;
+                }
+            }
+            return common;
+        }
+        return bitmaps.get(first).andCardinality(bitmaps.get(second));
+    }
+
+    @Benchmark
+    public int countLikes(Footprint footprint) {
+        // Присваивание, а не накопление: JMH читает значение поля в конце итерации
+        footprint.bytesPerLike = bytesPerLike;
+        int filmId = 1 + ThreadLocalRandom.current().nextInt(films);
+        return hashSets != null ? hashSets.get(filmId).size() : bitmaps.get(filmId).cardinality();
+    }
+
+    /**
+     * Объём кучи под лайки; JMH выводит поля как доп. результаты бенчмарка.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+
+        public long bytesPerLike;
+    }
+
+    private void fill(LikeSink sink) {
+        // Одинаковое зерно — одинаковые данные для обоих представлений
+        Random random = new Random(7);
+        for (int filmId = 1; filmId <= films; filmId++) {
+            for (int i = 0; i < likesPerFilm; i++) {
+                sink.add(filmId, 1 + random.nextInt(users));
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @FunctionalInterface
+    private interface LikeSink {
+        void add(int filmId, int userId);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка жанров по пачке id: IN с плейсхолдером на каждый id против одного параметра-массива (= ANY(?)).
+ * Размер пачки случаен в пределах maxBatch, как в реальных запросах, поэтому вариант с IN
+ * порождает до maxBatch разных текстов SQL и платит за их разбор, а ANY(?) — всегда один.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MultiLoadBenchmark {
+
+    private static final String SELECT_GENRES = "SELECT fg.film_id, g.genre_id, g.name " +
+            "FROM film_genres fg " +
+            "JOIN genres g ON g.genre_id = fg.genre_id ";
+
+    @Param({"10000"})
+    private int size;
+
+    @Param({"10", "100", "1000"})
+    private int maxBatch;
+
+    private BenchmarkDatabase db;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        db = BenchmarkDatabase.seeded(size);
+    }
+
+    @Benchmark
+    public void placeholderPerId(Blackhole blackhole) {
+        List<Integer> ids = randomIds();
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        db.jdbc.query(SELECT_GENRES + "WHERE fg.film_id IN (" + placeholders + ")",
+                rs -> {
+                    blackhole.consume(rs.getInt("film_id"));
+                }, ids.toArray());
+    }
+
+    @Benchmark
+    public void arrayParameter(Blackhole blackhole) {
+        List<Integer> ids = randomIds();
+        db.jdbc.query(SELECT_GENRES + "WHERE fg.film_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("INTEGER", ids.toArray())),
+                rs -> {
+                    blackhole.consume(rs.getInt("film_id"));
+                });
+    }
+
+    // Полный путь FilmRepository.findByIds: фильмы и их жанры, оба запроса с параметром-массивом
+    @Benchmark
+    public void findFilmsByIds(Blackhole blackhole) {
+        blackhole.consume(db.filmRepository.findByIds(randomIds()));
+    }
+
+    private List<Integer> randomIds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int count = 1 + random.nextInt(maxBatch);
+        List<Integer> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(1 + random.nextInt(size));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.user.User;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтения репозиториев: полная выборка фильмов, фильм по id, жанры пачки фильмов, общие друзья.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    private static final int GENRE_BATCH = 100;
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private BenchmarkDatabase db;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        db = BenchmarkDatabase.seeded(size);
+    }
+
+    @Benchmark
+    public List<Film> findAllFilms() {
+        return db.filmRepository.findAll();
+    }
+
+    @Benchmark
+    public Optional<Film> findFilmById() {
+        return db.filmRepository.findById(randomId());
+    }
+
+    @Benchmark
+    public Map<Integer, Set<Genre>> genresByFilmIds() {
+        Set<Integer> filmIds = new HashSet<>(GENRE_BATCH);
+        while (filmIds.size() < Math.min(GENRE_BATCH, size)) {
+            filmIds.add(randomId());
+        }
+        return db.genreRepository.getGenresByFilmIds(filmIds);
+    }
+
+    @Benchmark
+    public List<User> commonFriends() {
+        return db.friendRepository.getCommonFriends(randomId(), randomId());
+    }
+
+    private int randomId() {
+        return 1 + ThreadLocalRandom.current().nextInt(size);
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSearchIndex;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка полнотекстового поиска на синтетическом каталоге без БД.
+ * Слова названий и описаний берутся из словаря с распределением, близким к закону Ципфа,
+ * поэтому в запросах встречаются и редкие термы, и термы, которые есть у сотен тысяч фильмов.
+ * Режим SampleTime выдаёт перцентили, включая p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+
+    private static final int VOCABULARY = 50_000;
+    private static final String[] SYLLABLES = {"ка", "ро", "ми", "ну", "ле", "то", "ва", "сё", "ди", "па", "зо", "ры"};
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private String[] words;
+    private FilmSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int n = i; ; n /= SYLLABLES.length) {
+                word.append(SYLLABLES[n % SYLLABLES.length]);
+                if (n < SYLLABLES.length) {
+                    break;
+                }
+            }
+            words[i] = word.toString();
+        }
+
+        Random random = new Random(size);
+        FilmPopularityIndex popularityIndex = new FilmPopularityIndex(null, null, null);
+        index = new FilmSearchIndex(null, popularityIndex);
+        for (int id = 1; id <= size; id++) {
+            Film film = new Film();
+            film.setId(id);
+            film.setName(text(random, 1 + random.nextInt(3)));
+            film.setDescription(text(random, 8 + random.nextInt(16)));
+            film.setReleaseDate(LocalDate.of(1950 + random.nextInt(75), 1, 1));
+            popularityIndex.onFilmSaved(film);
+            index.onFilmSaved(film);
+            for (int like = random.nextInt(8); like > 0; like--) {
+                popularityIndex.onLikeAdded(id);
+            }
+        }
+    }
+
+    @Benchmark
+    public void oneTerm(Blackhole blackhole) {
+        blackhole.consume(index.search(word(ThreadLocalRandom.current()), 20));
+    }
+
+    @Benchmark
+    public void twoTerms(Blackhole blackhole) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        blackhole.consume(index.search(word(random) + " " + word(random), 20));
+    }
+
+    private String text(Random random, int wordCount) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word(random));
+        }
+        return text.toString();
+    }
+
+    // Куб равномерной величины смещает выбор к началу словаря: частые слова очень частые
+    private String word(Random random) {
+        double u = random.nextDouble();
+        return words[(int) (u * u * u * VOCABULARY)];
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.service.DeletionPurger;
+import ru.yandex.practicum.filmorate.storage.cacheStorage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.PrefixIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.UserSuggestIndex;
+
+import java.util.Map;
+
+/**
+ * Служебные эндпоинты для обслуживания in-memory индексов и кэшей.
+ */
+@RestController
+@RequestMapping("/admin")
+@Slf4j
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmCache filmCache;
+    private final FilmSuggestIndex filmSuggestIndex;
+    private final UserSuggestIndex userSuggestIndex;
+    private final DeletionPurger deletionPurger;
+
+    @GetMapping("/popularity/verify")
+    public FilmPopularityIndex.VerificationReport verifyPopularity() {
+        log.info("GET /admin/popularity/verify - сверка рейтинга популярности с БД");
+        return popularityIndex.verify();
+    }
+
+    @PostMapping("/popularity/rebuild")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void rebuildPopularity() {
+        log.info("POST /admin/popularity/rebuild - перестроение рейтинга популярности");
+        popularityIndex.rebuild();
+    }
+
+    @GetMapping("/cache/films")
+    public FilmCache.Stats filmCacheStats() {
+        log.info("GET /admin/cache/films - статистика кэша фильмов");
+        return filmCache.stats();
+    }
+
+    @DeleteMapping("/cache/films")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void clearFilmCache() {
+        log.info("DELETE /admin/cache/films - очистка кэша фильмов");
+        filmCache.clear();
+    }
+
+    // Оценка памяти индексов подсказок, в том числе на одну запись
+    @GetMapping("/suggest")
+    public Map<String, PrefixIndex.Footprint> suggestFootprint() {
+        log.info("GET /admin/suggest - память индексов подсказок");
+        return Map.of("films", filmSuggestIndex.footprint(), "users", userSuggestIndex.footprint());
+    }
+
+    // Очередь и скорость фоновой очистки удалённых пользователей и фильмов
+    @GetMapping("/purge")
+    public DeletionPurger.Stats purgeStats() {
+        log.info("GET /admin/purge - статистика очистки удалённых записей");
+        return deletionPurger.stats();
+    }
+
+    @PostMapping("/purge")
+    public DeletionPurger.Stats purgeNow() {
+        log.info("POST /admin/purge - внеочередной запуск очистки удалённых записей");
+        return deletionPurger.purge();
+    }
+}
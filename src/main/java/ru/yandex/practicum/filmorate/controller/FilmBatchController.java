@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmBatchResult;
+import ru.yandex.practicum.filmorate.service.FilmBatchService;
+
+import java.util.List;
+
+@RestController
+@Slf4j
+public class FilmBatchController {
+
+    private final FilmBatchService filmBatchService;
+    private final int maxSize;
+
+    public FilmBatchController(FilmBatchService filmBatchService,
+                               @Value("${filmorate.films.batch.max-size:5000}") int maxSize) {
+        this.filmBatchService = filmBatchService;
+        this.maxSize = maxSize;
+    }
+
+    // Без @Valid: некорректные элементы не отклоняют весь запрос, а попадают в ответ с ошибкой
+    @PostMapping("/films:batch")
+    public FilmBatchResult createBatch(@RequestBody List<Film> films) {
+        log.info("POST /films:batch - пакетное создание {} фильмов", films.size());
+        return filmBatchService.createBatch(films, maxSize);
+    }
+}
@@ -1,22 +1,35 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmBrowsePage;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.facetStorage.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.PrefixIndex;
 
 import java.util.*;
 
 @RestController
 @RequestMapping("/films")
 @Slf4j
-@RequiredArgsConstructor
 public class FilmController {
 
     private final FilmService filmService;
+    private final int maxIds;
+
+    public FilmController(FilmService filmService,
+                          @Value("${filmorate.multi-get.max-ids:200}") int maxIds) {
+        this.filmService = filmService;
+        this.maxIds = maxIds;
+    }
 
     @PutMapping("/{id}/like/{userId}")
     public void addLike(@PathVariable("id") Integer filmId,
@@ -31,9 +44,51 @@ public class FilmController {
         filmService.removeLike(filmId, userId);
     }
 
+    // Если рейтинг не менялся с версии из If-None-Match — 304 без выборки и сериализации
     @GetMapping("/popular")
-    public Collection<Film> getPopularFilms(@RequestParam(name = "count", defaultValue = "10") int limit) {
-        return filmService.getTopMostLikedFilms(limit);
+    public Collection<Film> getPopularFilms(@RequestParam(name = "count", defaultValue = "10") int limit,
+                                            @RequestParam(required = false) Integer genreId,
+                                            @RequestParam(required = false) Integer year,
+                                            WebRequest request) {
+        String etag = "popular-" + filmService.getPopularVersionTag() + "-" + limit + "-" + genreId + "-" + year;
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return filmService.getTopMostLikedFilms(limit, genreId, year);
+    }
+
+    @GetMapping("/trending")
+    public Collection<Film> getTrendingFilms(@RequestParam(name = "window", defaultValue = "24h") String window,
+                                             @RequestParam(name = "count", defaultValue = "10") int limit) {
+        return filmService.getTrendingFilms(window, limit);
+    }
+
+    // Найденные фильмы отдаются как id и название; полные данные — через GET /films?ids=
+    @GetMapping("/search")
+    public FilmSearchIndex.SearchResult searchFilms(@RequestParam("q") String query,
+                                                    @RequestParam(name = "count", defaultValue = "20") int limit) {
+        return filmService.searchFilms(query, limit);
+    }
+
+    // GET /films/browse?genre=2&genre=4&mpa=3&yearFrom=2000&durationMax=120 — страница и счётчики фасетов
+    @GetMapping("/browse")
+    public FilmBrowsePage browseFilms(@RequestParam(name = "genre", required = false) Set<Integer> genreIds,
+                                      @RequestParam(name = "mpa", required = false) Set<Integer> mpaIds,
+                                      @RequestParam(required = false) Integer yearFrom,
+                                      @RequestParam(required = false) Integer yearTo,
+                                      @RequestParam(required = false) Integer durationMin,
+                                      @RequestParam(required = false) Integer durationMax,
+                                      @RequestParam(defaultValue = "20") int limit,
+                                      @RequestParam(defaultValue = "0") int after) {
+        FilmFacetIndex.Filter filter = new FilmFacetIndex.Filter(
+                genreIds, mpaIds, yearFrom, yearTo, durationMin, durationMax);
+        return filmService.browseFilms(filter, after, limit);
+    }
+
+    @GetMapping("/suggest")
+    public List<PrefixIndex.Entry> suggestFilms(@RequestParam("q") String prefix,
+                                                @RequestParam(name = "count", defaultValue = "10") int limit) {
+        return filmService.suggestFilms(prefix, limit);
     }
 
     @PostMapping
@@ -47,8 +102,12 @@ public class FilmController {
         return filmService.update(newFilm);
     }
 
+    // Сначала дешёвая проверка версии; фильм целиком грузится, только если он изменился
     @GetMapping("/{id}")
-    public Film getFilmById(@PathVariable Integer id) {
+    public Film getFilmById(@PathVariable Integer id, WebRequest request) {
+        if (request.checkNotModified("film-" + id + "-" + filmService.getFilmVersion(id))) {
+            return null;
+        }
         return filmService.getFilmById(id);
     }
 
@@ -62,4 +121,17 @@ public class FilmController {
     public Collection<Film> getAllFilms() {
         return filmService.getAllFilms();
     }
+
+    // GET /films?ids=1,2,3 — в порядке запроса, с перечнем ненайденных id
+    @GetMapping(params = {"ids", "!limit"})
+    public MultiGetResult<Film> getFilmsByIds(@RequestParam List<Integer> ids) {
+        return filmService.getFilmsByIds(ids, maxIds);
+    }
+
+    // GET /films?limit=50&after=120 — постранично по возрастанию id
+    @GetMapping(params = "limit")
+    public Page<Film> getFilmsPage(@RequestParam int limit,
+                                   @RequestParam(defaultValue = "0") int after) {
+        return filmService.getFilmsPage(after, limit);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+@RestController
+@RequestMapping("/films")
+@Slf4j
+@RequiredArgsConstructor
+public class FilmExportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+
+    // Каталог пишется в ответ по одному фильму на строку, по мере чтения из БД
+    @GetMapping(path = "/export", produces = NDJSON)
+    public void exportFilms(HttpServletResponse response) throws IOException {
+        log.info("GET /films/export - потоковая выгрузка каталога");
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+
+        OutputStream out = new BufferedOutputStream(response.getOutputStream());
+        try {
+            filmService.exportFilms(film -> {
+                try {
+                    out.write(objectMapper.writeValueAsBytes(film));
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // Клиент закрыл соединение — курсоры уже закрыты, дописывать некуда
+            throw e.getCause();
+        }
+        out.flush();
+    }
+}
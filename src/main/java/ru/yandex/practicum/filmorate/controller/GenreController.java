@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.film.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
@@ -16,15 +17,24 @@ public class GenreController {
 
     private final GenreService genreService;
 
+    // Справочник меняется только при перезагрузке, поэтому ETag — его версия
     @GetMapping
-    public Collection<Genre> getAllGenres() {
+    public Collection<Genre> getAllGenres(WebRequest request) {
         log.info("GET /genres - получение всех жанров");
+        if (request.checkNotModified("genres-" + genreService.getVersionTag())) {
+            return null;
+        }
         return genreService.getAllGenres();
     }
 
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable Integer id) {
+    public Genre getGenreById(@PathVariable Integer id, WebRequest request) {
         log.info("GET /genres/{} - получение жанра", id);
-        return genreService.getGenreById(id);
+        // Жанр берётся из справочника в памяти до ETag: для несуществующего id — 404, а не 304
+        Genre genre = genreService.getGenreById(id);
+        if (request.checkNotModified("genre-" + id + "-" + genreService.getVersionTag())) {
+            return null;
+        }
+        return genre;
     }
 }
\ No newline at end of file
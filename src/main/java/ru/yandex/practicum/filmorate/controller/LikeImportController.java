@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.service.LikeImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/films")
+@Slf4j
+@RequiredArgsConstructor
+public class LikeImportController {
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private final LikeImportService likeImportService;
+
+    // Тело читается потоком, без буферизации целиком
+    @PostMapping(path = "/likes:bulk", consumes = {NDJSON, CSV})
+    public LikeImportService.ImportReport importLikes(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                      InputStream body) throws IOException {
+        LikeImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.valueOf(CSV))
+                ? LikeImportService.Format.CSV
+                : LikeImportService.Format.NDJSON;
+        log.info("POST /films/likes:bulk - импорт лайков, формат {}", format);
+        return likeImportService.importLikes(body, format);
+    }
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.model.film.MpaRating;
 import ru.yandex.practicum.filmorate.service.MpaService;
 
@@ -16,13 +17,22 @@ public class MpaController {
 
     private final MpaService mpaService;
 
+    // Справочник меняется только при перезагрузке, поэтому ETag — его версия
     @GetMapping
-    public Collection<MpaRating> getAllMpa() {
+    public Collection<MpaRating> getAllMpa(WebRequest request) {
+        if (request.checkNotModified("mpa-" + mpaService.getVersionTag())) {
+            return null;
+        }
         return mpaService.getAllMpa();
     }
 
     @GetMapping("/{id}")
-    public MpaRating getMpaById(@PathVariable Integer id) {
-        return mpaService.getMpaById(id);
+    public MpaRating getMpaById(@PathVariable Integer id, WebRequest request) {
+        // Рейтинг берётся из справочника в памяти до ETag: для несуществующего id — 404, а не 304
+        MpaRating mpa = mpaService.getMpaById(id);
+        if (request.checkNotModified("mpa-" + id + "-" + mpaService.getVersionTag())) {
+            return null;
+        }
+        return mpa;
     }
 }
\ No newline at end of file
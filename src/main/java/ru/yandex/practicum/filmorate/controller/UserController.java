@@ -1,22 +1,31 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.searchStorage.PrefixIndex;
 
 import java.util.*;
 
 @RestController
 @RequestMapping("/users")
 @Slf4j
-@RequiredArgsConstructor
 public class UserController {
 
     private final UserService userService;
+    private final int maxIds;
+
+    public UserController(UserService userService,
+                          @Value("${filmorate.multi-get.max-ids:200}") int maxIds) {
+        this.userService = userService;
+        this.maxIds = maxIds;
+    }
 
     @GetMapping("/{id}")
     public User get(@PathVariable Integer id) {
@@ -48,6 +57,12 @@ public class UserController {
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/suggest")
+    public List<PrefixIndex.Entry> suggestUsers(@RequestParam("q") String prefix,
+                                                @RequestParam(name = "count", defaultValue = "10") int limit) {
+        return userService.suggestUsers(prefix, limit);
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public User create(@Valid @RequestBody User newUser) {
@@ -64,6 +79,19 @@ public class UserController {
         return userService.getAll();
     }
 
+    // GET /users?ids=1,2,3 — в порядке запроса, с перечнем ненайденных id
+    @GetMapping(params = {"ids", "!limit"})
+    public MultiGetResult<User> getUsersByIds(@RequestParam List<Integer> ids) {
+        return userService.getUsersByIds(ids, maxIds);
+    }
+
+    // GET /users?limit=50&after=120 — постранично по возрастанию id
+    @GetMapping(params = "limit")
+    public Page<User> getUsersPage(@RequestParam int limit,
+                                   @RequestParam(defaultValue = "0") int after) {
+        return userService.getUsersPage(after, limit);
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteUser(@PathVariable Integer id) {
@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
 import ru.yandex.practicum.filmorate.exception.ValidateException;
 
 import java.util.NoSuchElementException;
@@ -43,6 +44,13 @@ public class ErrorHandler {
         return new ErrorResponse(e.getMessage(), 409, request.getRequestURI());
     }
 
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleServiceUnavailable(ServiceUnavailableException e, HttpServletRequest request) {
+        log.warn("Service unavailable: {}", e.getMessage());
+        return new ErrorResponse(e.getMessage(), 503, request.getRequestURI());
+    }
+
     @ExceptionHandler(ValidateException.class)
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ErrorResponse handleValidateException(ValidateException e, HttpServletRequest request) {
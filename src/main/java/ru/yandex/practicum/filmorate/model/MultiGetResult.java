@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Ответ на запрос нескольких сущностей по списку id.
+ * items — найденные сущности в порядке запроса, missingIds — id, которых нет.
+ */
+public record MultiGetResult<T>(List<T> items, List<Integer> missingIds) {
+
+    /**
+     * Проверить список id и убрать повторы с сохранением порядка.
+     */
+    public static List<Integer> distinctIds(List<Integer> ids, int maxIds) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Список ids не может быть пустым");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Список ids содержит пустое значение");
+        }
+        List<Integer> distinct = List.copyOf(new LinkedHashSet<>(ids));
+        if (distinct.size() > maxIds) {
+            throw new IllegalArgumentException("Можно запросить не больше " + maxIds + " id за раз");
+        }
+        return distinct;
+    }
+
+    public static <T> MultiGetResult<T> of(List<Integer> requestedIds, Collection<T> found, Function<T, Integer> idOf) {
+        Map<Integer, T> byId = new HashMap<>();
+        for (T item : found) {
+            byId.put(idOf.apply(item), item);
+        }
+        List<T> items = new ArrayList<>(byId.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : requestedIds) {
+            T item = byId.get(id);
+            if (item != null) {
+                items.add(item);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new MultiGetResult<>(items, missing);
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка при курсорной (keyset) пагинации.
+ * nextCursor — id последнего элемента страницы, передаётся в следующий запрос как after;
+ * null, если страница последняя.
+ */
+public record Page<T>(List<T> items, Integer nextCursor) {
+
+    public static final int MAX_LIMIT = 1000;
+
+    public static void validateLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit должен быть от 1 до " + MAX_LIMIT);
+        }
+    }
+
+    /**
+     * Собрать страницу из выборки на limit + 1 строк: лишняя строка лишь показывает, что есть продолжение.
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, Function<T, Integer> idOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, idOf.apply(items.get(limit - 1)));
+    }
+}
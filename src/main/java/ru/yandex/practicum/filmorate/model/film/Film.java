@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.model.film;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
@@ -25,6 +26,7 @@ public class Film {
     @Size(max = 200, message = "Максимальная длина описания — 200 символов")
     private String description;
 
+    @NotNull(message = "Дата релиза обязательна")
     @ReleaseDateAfter
     private LocalDate releaseDate;
 
@@ -36,6 +38,9 @@ public class Film {
     @JsonProperty("mpa")
     private MpaRating mpa;
 
+    // Растёт на каждом обновлении; используется в ETag
+    private Long version;
+
     public void addGenre(Genre genre) {
         if (genres == null) {
             genres = new LinkedHashSet<>();
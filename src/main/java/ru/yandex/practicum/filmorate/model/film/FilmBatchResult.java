@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model.film;
+
+import java.util.List;
+
+/**
+ * Результат пакетного создания фильмов.
+ * items — по одному на каждый элемент запроса в том же порядке: созданный фильм либо текст ошибки.
+ */
+public record FilmBatchResult(int created, int failed, List<Item> items) {
+
+    public record Item(int index, Film film, String error) {
+    }
+}
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.model.film;
+
+import ru.yandex.practicum.filmorate.storage.facetStorage.FilmFacetIndex;
+
+import java.util.List;
+
+/**
+ * Страница фасетного отбора фильмов.
+ * items и nextCursor — как в Page; total — число фильмов по всему фильтру;
+ * facets — счётчики значений каждого фасета с учётом остальных фильтров.
+ */
+public record FilmBrowsePage(List<Film> items, Integer nextCursor, int total, FilmFacetIndex.Facets facets) {
+}
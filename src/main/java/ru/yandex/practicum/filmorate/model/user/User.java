@@ -25,6 +25,8 @@ public class User {
     private String name;
     @PastOrPresent
     private LocalDate birthday;
+    // Растёт на каждом обновлении
+    private Long version;
     @Setter(AccessLevel.NONE)
     private Set<Integer> friendIds = new HashSet<>();
 
@@ -25,6 +25,7 @@ public class FilmRowMapper implements RowMapper<Film> {
         film.setReleaseDate(releaseDate == null ? null : releaseDate.toLocalDate());
 
         film.setDuration(rs.getInt("duration"));
+        film.setVersion(rs.getLong("version"));
 
         Integer ratingId = (Integer) rs.getObject("rating_id");
         if (ratingId != null) {
@@ -21,6 +21,7 @@ public class UserRowMapper implements RowMapper<User> {
 
         var birthday = rs.getDate("birthday");
         user.setBirthday(birthday == null ? null : birthday.toLocalDate());
+        user.setVersion(rs.getLong("version"));
 
         return user;
     }
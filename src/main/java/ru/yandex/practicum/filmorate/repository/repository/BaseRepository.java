@@ -2,12 +2,17 @@ package ru.yandex.practicum.filmorate.repository.repository;
 
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import ru.yandex.practicum.filmorate.exception.InternalServerException;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -33,6 +38,23 @@ public class BaseRepository<T> {
         return jdbc.query(query, mapper, params);
     }
 
+    /**
+     * Выборка по набору id. Запрос должен содержать ровно один параметр вида "id = ANY(?)":
+     * все id передаются одним массивом, поэтому текст SQL не зависит от их числа
+     * и H2 разбирает и кеширует его один раз, а не на каждый размер пачки.
+     */
+    protected List<T> findManyByIds(String query, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return jdbc.query(query, idArray(ids), mapper);
+    }
+
+    // Параметр-массив для запросов с "= ANY(?)"; доступен и репозиториям без BaseRepository
+    static PreparedStatementSetter idArray(Collection<Integer> ids) {
+        return ps -> ps.setArray(1, ps.getConnection().createArrayOf("INTEGER", ids.toArray()));
+    }
+
     protected boolean delete(String query, long id) {
         int rowsDeleted = jdbc.update(query, id);
         return rowsDeleted > 0;
@@ -45,6 +67,33 @@ public class BaseRepository<T> {
         }
     }
 
+    /**
+     * UPDATE с оптимистической блокировкой, который сам увеличивает колонку version; возвращает её новое значение.
+     * Запрос должен заканчиваться условием WHERE по id: если expectedVersion задан, к нему добавляется
+     * "AND version = ?". Новая версия читается из FINAL TABLE того же оператора, без отдельного SELECT.
+     * Пустой результат — строка не найдена или её версия уже другая.
+     */
+    protected Optional<Long> updateVersioned(String updateQuery, Long expectedVersion, Object... params) {
+        String query = updateQuery;
+        Object[] args = params;
+        if (expectedVersion != null) {
+            query = updateQuery + " AND version = ?";
+            args = Arrays.copyOf(params, params.length + 1);
+            args[params.length] = expectedVersion;
+        }
+        List<Long> versions = jdbc.queryForList("SELECT version FROM FINAL TABLE (" + query + ")", Long.class, args);
+        return versions.stream().findFirst();
+    }
+
+    // Компактный набор id: один бит на id, без упаковки в Integer
+    protected BitSet loadIds(String query) {
+        BitSet ids = new BitSet();
+        jdbc.query(query, rs -> {
+            ids.set(rs.getInt(1));
+        });
+        return ids;
+    }
+
     protected long insert(String query, Object... params) {
         GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
         jdbc.update(connection -> {
@@ -1,27 +1,56 @@
 package ru.yandex.practicum.filmorate.repository.repository;
 
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.InternalServerException;
 import ru.yandex.practicum.filmorate.model.film.Film;
 import ru.yandex.practicum.filmorate.model.film.Genre;
 import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.cacheStorage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.existenceStorage.KnownIds;
+import ru.yandex.practicum.filmorate.storage.searchStorage.PrefixIndex;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Repository
 public class FilmRepository extends BaseRepository<Film> {
 
+    // Фильм с полными данными MPA; жанры догружаются отдельно. Мягко удалённые фильмы отсеяны,
+    // дополнительные условия присоединяются через AND
+    private static final String SELECT_FILMS =
+            "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, f.version, " +
+                    "       mr.rating_id, mr.name as mpa_name, mr.description as mpa_description " +
+                    "FROM films f " +
+                    "LEFT JOIN mpa_ratings mr ON mr.rating_id = f.rating_id " +
+                    "WHERE NOT f.deleted ";
+
+    // Строк за одно обращение к курсору при потоковой выгрузке
+    private static final int EXPORT_FETCH_SIZE = 500;
+
     private final GenreRepository genreRepository;
     private final MpaRatingRepository mpaRatingRepository;
+    private final FilmCache filmCache;
+    // id существующих фильмов: проверка существования без чтения фильма
+    private final KnownIds knownIds = new KnownIds(this::findAllIds,
+            id -> !jdbc.queryForList("SELECT 1 FROM films WHERE film_id = ? AND NOT deleted", Integer.class, id).isEmpty());
 
     public FilmRepository(JdbcTemplate jdbc,
                           FilmRowMapper filmRowMapper,
                           GenreRepository genreRepository,
-                          MpaRatingRepository mpaRatingRepository) {
+                          MpaRatingRepository mpaRatingRepository,
+                          FilmCache filmCache) {
         super(jdbc, filmRowMapper);
         this.genreRepository = genreRepository;
         this.mpaRatingRepository = mpaRatingRepository;
+        this.filmCache = filmCache;
     }
 
     public Film create(Film film) {
@@ -40,24 +69,79 @@ public class FilmRepository extends BaseRepository<Film> {
                 ratingId
         );
         film.setId((int) id);
+        film.setVersion(0L);
+        knownIds.onCreated(film.getId());
 
-        // Сохранение жанров
+        // Сохранение жанров: у нового фильма связей ещё нет, сравнивать не с чем
         if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            genreRepository.setGenresForFilm(film.getId(), film.getGenres());
+            genreRepository.addGenresForFilms(List.of(film));
         }
 
         return film;
     }
 
-    public Film update(Film film) {
+    /**
+     * Вставка пачки фильмов: один batch INSERT с возвратом сгенерированных id
+     * и один batch INSERT связей с жанрами на всю пачку. Фильмам проставляются id и версия.
+     */
+    public List<Film> createBatch(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbc.batchUpdate(
+                connection -> connection.prepareStatement(
+                        "INSERT INTO films(name, description, release_date, duration, rating_id) VALUES (?, ?, ?, ?, ?)",
+                        new String[]{"film_id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Film film = films.get(i);
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setObject(3, film.getReleaseDate());
+                        ps.setInt(4, film.getDuration());
+                        ps.setObject(5, film.getMpa() == null ? null : film.getMpa().getId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return films.size();
+                    }
+                },
+                keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != films.size()) {
+            throw new InternalServerException("Не удалось сохранить фильмы: получено " + keys.size()
+                    + " id на " + films.size() + " строк");
+        }
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(((Number) keys.get(i).values().iterator().next()).intValue());
+            film.setVersion(0L);
+            knownIds.onCreated(film.getId());
+        }
+
+        genreRepository.addGenresForFilms(films);
+        return films;
+    }
+
+    /**
+     * Обновить фильм, если его версия совпадает с film.getVersion() (без версии — безусловно).
+     * return фильм с новой версией или empty, если фильма нет или его уже изменили
+     */
+    public Optional<Film> update(Film film) {
         //  Получаем ID из MpaRating объекта
         Integer ratingId = null;
         if (film.getMpa() != null && film.getMpa().getId() != null) {
             ratingId = film.getMpa().getId();
         }
 
-        update(
-                "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, rating_id = ? WHERE film_id = ?",
+        Optional<Long> version = updateVersioned(
+                "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, rating_id = ?, " +
+                        "version = version + 1 WHERE film_id = ? AND NOT deleted",
+                film.getVersion(),
                 film.getName(),
                 film.getDescription(),
                 film.getReleaseDate(),
@@ -65,32 +149,78 @@ public class FilmRepository extends BaseRepository<Film> {
                 ratingId,
                 film.getId()
         );
+        if (version.isEmpty()) {
+            return Optional.empty();
+        }
+        film.setVersion(version.get());
+        // Жанры предыдущей версии берутся из кэша, если он её содержит: тогда film_genres не перечитывается.
+        // Версия растёт ровно на 1, а строка фильма заблокирована этим UPDATE до конца транзакции
+        Set<Integer> storedGenreIds = filmCache.getGenreIds(film.getId(), version.get() - 1).orElse(null);
+        filmCache.invalidate(film.getId());
 
         // Обновление жанров
-        genreRepository.setGenresForFilm(film.getId(), film.getGenres());
+        genreRepository.setGenresForFilm(film.getId(), film.getGenres(), storedGenreIds);
 
-        return film;
+        return Optional.of(film);
     }
 
+    // Мягкое удаление: фильм сразу скрыт от чтений, лайки и жанры вычищает DeletionPurger
     public boolean deleteById(int id) {
-        return delete("DELETE FROM films WHERE film_id = ?", id);
+        boolean deleted = delete("UPDATE films SET deleted = TRUE, version = version + 1 WHERE film_id = ? AND NOT deleted", id);
+        filmCache.invalidate(id);
+        if (deleted) {
+            knownIds.onDeleted(id);
+        }
+        return deleted;
+    }
+
+    // Мягко удалённые фильмы, ожидающие очистки, по возрастанию id
+    public List<Integer> findDeletedIds(int limit) {
+        return jdbc.queryForList("SELECT film_id FROM films WHERE deleted ORDER BY film_id LIMIT ?", Integer.class, limit);
+    }
+
+    public int countDeleted() {
+        Integer count = jdbc.queryForObject("SELECT COUNT(*) FROM films WHERE deleted", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    // Окончательно удалить мягко удалённый фильм, если у него не осталось зависимых строк
+    public boolean purge(int id) {
+        return jdbc.update("DELETE FROM films WHERE film_id = ? AND deleted " +
+                        "AND NOT EXISTS (SELECT 1 FROM likes WHERE film_id = ?) " +
+                        "AND NOT EXISTS (SELECT 1 FROM film_genres WHERE film_id = ?)",
+                id, id, id) > 0;
+    }
+
+    // Существует ли фильм: обычно из памяти, без запроса к БД
+    public boolean existsById(int id) {
+        return knownIds.contains(id);
+    }
+
+    // Версия фильма для ETag: из кэша, а при промахе — одним чтением по первичному ключу
+    public Optional<Long> findVersion(int id) {
+        Optional<Long> cached = filmCache.getVersion(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        return jdbc.queryForList("SELECT version FROM films WHERE film_id = ? AND NOT deleted", Long.class, id).stream().findFirst();
     }
 
     public Optional<Film> findById(int id) {
+        Optional<Film> cached = filmCache.get(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        long loadStamp = filmCache.loadStamp();
+
         // Загружаем полные данные MPA
-        Optional<Film> filmOpt = findOne(
-                "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, " +
-                        "       mr.rating_id, mr.name as mpa_name, mr.description as mpa_description " +
-                        "FROM films f " +
-                        "LEFT JOIN mpa_ratings mr ON mr.rating_id = f.rating_id " +
-                        "WHERE f.film_id = ?",
-                id
-        );
+        Optional<Film> filmOpt = findOne(SELECT_FILMS + "AND f.film_id = ?", id);
 
         filmOpt.ifPresent(f -> {
             // Загрузка жанров
             Set<Genre> genres = genreRepository.getGenresByFilmId(f.getId());
             f.setGenres(new LinkedHashSet<>(genres));
+            filmCache.put(f, loadStamp);
         });
 
         return filmOpt;
@@ -98,28 +228,119 @@ public class FilmRepository extends BaseRepository<Film> {
 
     public List<Film> findAll() {
         //  Загружаем полные данные MPA
-        List<Film> films = findMany(
-                "SELECT f.film_id, f.name, f.description, f.release_date, f.duration, " +
-                        "       mr.rating_id, mr.name as mpa_name, mr.description as mpa_description " +
-                        "FROM films f " +
-                        "LEFT JOIN mpa_ratings mr ON mr.rating_id = f.rating_id"
+        List<Film> films = findMany(SELECT_FILMS);
+
+        // Для всего каталога жанры читаются целиком, без огромного списка id
+        applyGenres(films, genreRepository.getGenresForAllFilms());
+        return films;
+    }
+
+    /**
+     * Страница фильмов по возрастанию id, строго после afterId.
+     * Выборка идёт по первичному ключу, жанры грузятся одним запросом только для этой страницы.
+     */
+    public List<Film> findPage(int afterId, int limit) {
+        List<Film> films = findMany(SELECT_FILMS + "AND f.film_id > ? ORDER BY f.film_id LIMIT ?", afterId, limit);
+        attachGenres(films);
+        return films;
+    }
+
+    /**
+     * Фильмы по списку id в порядке этого списка; отсутствующие id пропускаются.
+     */
+    public List<Film> findByIds(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Film> films = findManyByIds(SELECT_FILMS + "AND f.film_id = ANY(?)", ids);
+        attachGenres(films);
+
+        Map<Integer, Film> byId = films.stream()
+                .collect(Collectors.toMap(Film::getId, f -> f));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Потоковый обход всех фильмов с жанрами по возрастанию id.
+     * films и film_genres читаются двумя упорядоченными курсорами на одном соединении
+     * и сливаются на лету, в памяти одновременно держится только текущий фильм.
+     */
+    public void forEachFilm(Consumer<Film> action) {
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement filmsStatement = connection.prepareStatement(SELECT_FILMS + "ORDER BY f.film_id");
+                 PreparedStatement genresStatement = connection.prepareStatement(
+                         "SELECT fg.film_id, g.genre_id, g.name " +
+                                 "FROM film_genres fg " +
+                                 "JOIN genres g ON g.genre_id = fg.genre_id " +
+                                 "ORDER BY fg.film_id, g.genre_id")) {
+                filmsStatement.setFetchSize(EXPORT_FETCH_SIZE);
+                genresStatement.setFetchSize(EXPORT_FETCH_SIZE);
+
+                try (ResultSet films = filmsStatement.executeQuery();
+                     ResultSet genres = genresStatement.executeQuery()) {
+                    boolean hasGenre = genres.next();
+                    int rowNum = 0;
+                    while (films.next()) {
+                        Film film = mapper.mapRow(films, rowNum++);
+                        Set<Genre> filmGenres = new LinkedHashSet<>();
+                        // Жанры фильмов с меньшим id, удалённых между запросами, пропускаются
+                        while (hasGenre && genres.getInt("film_id") <= film.getId()) {
+                            if (genres.getInt("film_id") == film.getId()) {
+                                filmGenres.add(new Genre(genres.getInt("genre_id"), genres.getString("name")));
+                            }
+                            hasGenre = genres.next();
+                        }
+                        film.setGenres(filmGenres);
+                        action.accept(film);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    public BitSet findAllIds() {
+        return loadIds("SELECT film_id FROM films WHERE NOT deleted");
+    }
+
+    // Названия фильмов с числом лайков для индекса подсказок
+    public List<PrefixIndex.Entry> findSuggestEntries() {
+        return jdbc.query("SELECT film_id, name, likes_count FROM films WHERE NOT deleted",
+                (rs, rowNum) -> new PrefixIndex.Entry(rs.getInt("film_id"), rs.getString("name"), rs.getInt("likes_count")));
+    }
+
+    // Год выпуска каждого фильма: film_id -> год
+    public Map<Integer, Integer> findReleaseYears() {
+        Map<Integer, Integer> result = new HashMap<>();
+        jdbc.query(
+                "SELECT film_id, EXTRACT(YEAR FROM release_date) AS release_year FROM films WHERE NOT deleted",
+                rs -> {
+                    result.put(rs.getInt("film_id"), rs.getInt("release_year"));
+                }
         );
+        return result;
+    }
 
+    // Загрузка жанров для списка фильмов одним запросом
+    private void attachGenres(List<Film> films) {
         if (films.isEmpty()) {
-            return films;
+            return;
         }
 
-        // Загрузка жанров для всех фильмов
         Set<Integer> filmIds = films.stream()
                 .map(Film::getId)
                 .collect(Collectors.toSet());
-        Map<Integer, Set<Genre>> genresByFilm = genreRepository.getGenresByFilmIds(filmIds);
+        applyGenres(films, genreRepository.getGenresByFilmIds(filmIds));
+    }
 
+    private static void applyGenres(List<Film> films, Map<Integer, Set<Genre>> genresByFilm) {
         for (Film f : films) {
             Set<Genre> genres = genresByFilm.getOrDefault(f.getId(), Set.of());
             f.setGenres(new LinkedHashSet<>(genres));
         }
-
-        return films;
     }
 }
\ No newline at end of file
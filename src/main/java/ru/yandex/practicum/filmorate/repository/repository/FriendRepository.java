@@ -2,6 +2,7 @@ package ru.yandex.practicum.filmorate.repository.repository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.user.FriendshipStatus;
@@ -26,24 +27,39 @@ public class FriendRepository {
         return count != null && count > 0;
     }
 
-    public void add(int userId, int friendId, FriendshipStatus status) {
-        String sql = "INSERT INTO friends (user_id, friend_id, status) VALUES (?, ?, ?)";
+    // true, если связь добавлена; false — она уже была либо одного из пользователей нет или он удалён.
+    // Один оператор вместо проверки и вставки
+    public boolean add(int userId, int friendId, FriendshipStatus status) {
+        String sql = "MERGE INTO friends f " +
+                "USING (SELECT u.user_id, o.user_id AS friend_id FROM users u " +
+                "       JOIN users o ON o.user_id = ? AND NOT o.deleted " +
+                "       WHERE u.user_id = ? AND NOT u.deleted) s " +
+                "ON f.user_id = s.user_id AND f.friend_id = s.friend_id " +
+                "WHEN NOT MATCHED THEN INSERT (user_id, friend_id, status) VALUES (s.user_id, s.friend_id, ?)";
 
         // Преобразуем enum в строку для хранения в БД
         String statusString = status.name(); // "PENDING" или "CONFIRMED"
 
         log.debug("Adding friend: userId={}, friendId={}, status={}", userId, friendId, statusString);
-        jdbc.update(sql, userId, friendId, statusString);
+        try {
+            return jdbc.update(sql, friendId, userId, statusString) > 0;
+        } catch (DuplicateKeyException e) {
+            // Ту же связь вставила параллельная транзакция, пока эта ждала блокировку строки
+            return false;
+        }
     }
 
-    public void remove(int userId, int friendId) {
+    // true, если связь была и удалена
+    public boolean remove(int userId, int friendId) {
         String sql = "DELETE FROM friends WHERE user_id = ? AND friend_id = ?";
         log.debug("Removing friend: userId={}, friendId={}", userId, friendId);
-        jdbc.update(sql, userId, friendId);
+        return jdbc.update(sql, userId, friendId) > 0;
     }
 
     public Collection<Integer> findFriendIds(int userId) {
-        String sql = "SELECT friend_id FROM friends WHERE user_id = ?";
+        String sql = "SELECT f.friend_id FROM friends f " +
+                "JOIN users u ON u.user_id = f.friend_id AND NOT u.deleted " +
+                "WHERE f.user_id = ?";
         List<Integer> ids = jdbc.queryForList(sql, Integer.class, userId);
         return new HashSet<>(ids);
     }
@@ -54,7 +70,7 @@ public class FriendRepository {
                 FROM users u
                 JOIN friends f1 ON u.user_id = f1.friend_id
                 JOIN friends f2 ON u.user_id = f2.friend_id
-                WHERE f1.user_id = ? AND f2.user_id = ?
+                WHERE f1.user_id = ? AND f2.user_id = ? AND NOT u.deleted
                 """;
 
         log.debug("Getting common friends for users: {} and {}", userId, otherId);
@@ -67,13 +83,23 @@ public class FriendRepository {
                 SELECT u.*
                 FROM friends f
                 JOIN users u ON u.user_id = f.friend_id
-                WHERE f.user_id = ?
+                WHERE f.user_id = ? AND NOT u.deleted
                 """;
 
         log.debug("Getting friends for user: {}", userId);
         return jdbc.query(sql, new UserRowMapper(), userId);
     }
 
+    // Удалить не больше limit связей дружбы, в которых участвует пользователь, в обе стороны.
+    // return удалённые связи
+    public List<Link> deleteUserLinksChunk(int userId, int limit) {
+        String sql = "SELECT user_id, friend_id FROM OLD TABLE " +
+                "(DELETE FROM friends WHERE user_id = ? OR friend_id = ? FETCH FIRST ? ROWS ONLY)";
+        log.debug("Purging friend links of user {}, limit {}", userId, limit);
+        return jdbc.query(sql, (rs, rowNum) -> new Link(rs.getInt("user_id"), rs.getInt("friend_id")),
+                userId, userId, limit);
+    }
+
     // return FriendshipStatus или null если связи нет
     public FriendshipStatus getStatus(int userId, int friendId) {
         String sql = "SELECT status FROM friends WHERE user_id = ? AND friend_id = ?";
@@ -101,4 +127,7 @@ public class FriendRepository {
     public void confirmFriendship(int userId, int friendId) {
         updateStatus(userId, friendId, FriendshipStatus.CONFIRMED);
     }
-}
\ No newline at end of file
+
+    public record Link(int userId, int friendId) {
+    }
+}
@@ -6,7 +6,9 @@ import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.film.Film;
 import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.storage.cacheStorage.FilmCache;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -18,6 +20,7 @@ import java.util.*;
 public class GenreRepository {
 
     private final JdbcTemplate jdbc;
+    private final FilmCache filmCache;
 
     private static final RowMapper<Genre> GENRE_ROW_MAPPER = new RowMapper<>() {
         @Override
@@ -67,62 +70,139 @@ public class GenreRepository {
             return new HashMap<>();
         }
 
-        String placeholders = String.join(",", Collections.nCopies(filmIds.size(), "?"));
+        // Один параметр-массив вместо IN (?, ?, ...): форма запроса не зависит от числа фильмов
         String sql = "SELECT fg.film_id, g.genre_id, g.name " +
                 "FROM film_genres fg " +
                 "JOIN genres g ON g.genre_id = fg.genre_id " +
-                "WHERE fg.film_id IN (" + placeholders + ") " +
+                "WHERE fg.film_id = ANY(?) " +
                 "ORDER BY fg.film_id, g.genre_id";
 
-        Object[] args = filmIds.toArray();
         log.debug("Getting genres for {} films", filmIds.size());
 
+        Map<Integer, Set<Genre>> result = new HashMap<>();
+        jdbc.query(sql, BaseRepository.idArray(filmIds), rs -> {
+            addGenreRow(result, rs);
+        });
+
+        return result;
+    }
+
+    // Жанры всех фильмов одним проходом по film_genres, без списка id
+    public Map<Integer, Set<Genre>> getGenresForAllFilms() {
+        String sql = "SELECT fg.film_id, g.genre_id, g.name " +
+                "FROM film_genres fg " +
+                "JOIN genres g ON g.genre_id = fg.genre_id " +
+                "ORDER BY fg.film_id, g.genre_id";
+
         Map<Integer, Set<Genre>> result = new HashMap<>();
         jdbc.query(sql, rs -> {
-            int filmId = rs.getInt("film_id");
-            Genre genre = new Genre(
-                    rs.getInt("genre_id"),
-                    rs.getString("name")
-            );
-            result.computeIfAbsent(filmId, k -> new LinkedHashSet<>()).add(genre);
-        }, args);
+            addGenreRow(result, rs);
+        });
+        return result;
+    }
 
+    // id жанров всех фильмов без загрузки названий: film_id -> genre_id
+    public Map<Integer, Set<Integer>> findGenreIdsByFilm() {
+        Map<Integer, Set<Integer>> result = new HashMap<>();
+        jdbc.query("SELECT film_id, genre_id FROM film_genres", rs -> {
+            result.computeIfAbsent(rs.getInt("film_id"), k -> new HashSet<>()).add(rs.getInt("genre_id"));
+        });
         return result;
     }
 
-    // Удаляет старые связи и создает новые
+    /**
+     * Привести связи фильма с жанрами к заданному набору.
+     * Сравнивает с сохранёнными связями и пишет только разницу: удаления и вставки — по одному batchUpdate.
+     * Если набор не изменился, в film_genres ничего не пишется и кэш фильма не сбрасывается.
+     */
     public void setGenresForFilm(Integer filmId, Set<Genre> genres) {
-        log.debug("Setting genres for film_id={}", filmId);
+        setGenresForFilm(filmId, genres, null);
+    }
 
-        // Удаляем старые связи
-        String deleteSql = "DELETE FROM film_genres WHERE film_id = ?";
-        jdbc.update(deleteSql, filmId);
+    /**
+     * То же, но сравнивает с уже известными id сохранённых жанров (например, из кэша фильма)
+     * без чтения film_genres; при storedIds == null связи читаются из БД.
+     */
+    public void setGenresForFilm(Integer filmId, Set<Genre> genres, Set<Integer> storedIds) {
+        Set<Integer> requested = new LinkedHashSet<>();
+        if (genres != null) {
+            for (Genre genre : genres) {
+                if (genre.getId() != null) {
+                    requested.add(genre.getId());
+                }
+            }
+        }
+        Set<Integer> stored = storedIds != null ? storedIds : new HashSet<>(
+                jdbc.queryForList("SELECT genre_id FROM film_genres WHERE film_id = ?", Integer.class, filmId));
+
+        List<Object[]> toDelete = new ArrayList<>();
+        for (Integer genreId : stored) {
+            if (!requested.contains(genreId)) {
+                toDelete.add(new Object[]{filmId, genreId});
+            }
+        }
+        List<Object[]> toInsert = new ArrayList<>();
+        for (Integer genreId : requested) {
+            if (!stored.contains(genreId)) {
+                toInsert.add(new Object[]{filmId, genreId});
+            }
+        }
 
-        if (genres == null || genres.isEmpty()) {
-            log.debug("No genres to add for film_id={}", filmId);
+        if (toDelete.isEmpty() && toInsert.isEmpty()) {
+            log.debug("Genres for film_id={} unchanged", filmId);
             return;
         }
+        if (!toDelete.isEmpty()) {
+            jdbc.batchUpdate("DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?", toDelete);
+        }
+        if (!toInsert.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", toInsert);
+        }
+        filmCache.invalidate(filmId);
+        log.debug("Genres for film_id={}: removed {}, added {}", filmId, toDelete.size(), toInsert.size());
+    }
 
-        // Добавляем новые связи
-        String insertSql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
-        for (Genre genre : genres) {
-            if (genre.getId() != null) {
-                jdbc.update(insertSql, filmId, genre.getId());
-                log.debug("Added genre_id={} to film_id={}", genre.getId(), filmId);
+    // Связи с жанрами для только что созданных фильмов: один batchUpdate на все фильмы
+    public void addGenresForFilms(List<Film> films) {
+        List<Object[]> args = new ArrayList<>();
+        for (Film film : films) {
+            for (Genre genre : film.getGenres()) {
+                if (genre.getId() != null) {
+                    args.add(new Object[]{film.getId(), genre.getId()});
+                }
             }
         }
+        if (!args.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", args);
+        }
+        log.debug("Added {} genre links for {} films", args.size(), films.size());
     }
 
     public void deleteGenresForFilm(Integer filmId) {
         String sql = "DELETE FROM film_genres WHERE film_id = ?";
         jdbc.update(sql, filmId);
+        filmCache.invalidate(filmId);
         log.debug("Deleted all genres for film_id={}", filmId);
     }
 
+    // Удалить не больше limit связей фильма с жанрами; return число удалённых строк
+    public int deleteGenresForFilmChunk(int filmId, int limit) {
+        return jdbc.update("DELETE FROM film_genres WHERE film_id = ? FETCH FIRST ? ROWS ONLY", filmId, limit);
+    }
+
     // проверить существование жанра
     public boolean existsById(Integer id) {
         String sql = "SELECT COUNT(*) FROM genres WHERE genre_id = ?";
         Integer count = jdbc.queryForObject(sql, Integer.class, id);
         return count != null && count > 0;
     }
-}
\ No newline at end of file
+
+    private static void addGenreRow(Map<Integer, Set<Genre>> result, ResultSet rs) throws SQLException {
+        int filmId = rs.getInt("film_id");
+        Genre genre = new Genre(
+                rs.getInt("genre_id"),
+                rs.getString("name")
+        );
+        result.computeIfAbsent(filmId, k -> new LinkedHashSet<>()).add(genre);
+    }
+}
@@ -1,36 +1,90 @@
 package ru.yandex.practicum.filmorate.repository.repository;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 @Repository
 public class LikeRepository {
 
+    // Вставляет лайк, только если его ещё нет и существуют и не удалены и фильм, и пользователь:
+    // мягко удалённая строка остаётся в таблице, и внешний ключ её уже не отсекает.
+    // Параметры: user_id, film_id, created_at. Возвращает число вставленных строк (0 или 1)
+    static final String INSERT_LIKE_IF_ABSENT =
+            "MERGE INTO likes l " +
+                    "USING (SELECT f.film_id, u.user_id FROM films f JOIN users u ON u.user_id = ? AND NOT u.deleted " +
+                    "       WHERE f.film_id = ? AND NOT f.deleted) s " +
+                    "ON l.film_id = s.film_id AND l.user_id = s.user_id " +
+                    "WHEN NOT MATCHED THEN INSERT (film_id, user_id, created_at) " +
+                    "VALUES (s.film_id, s.user_id, ?)";
+
     private final JdbcTemplate jdbc;
+    private final LikeWriteBuffer writeBuffer;
 
-    public LikeRepository(JdbcTemplate jdbc) {
+    public LikeRepository(JdbcTemplate jdbc, LikeWriteBuffer writeBuffer) {
         this.jdbc = jdbc;
+        this.writeBuffer = writeBuffer;
     }
 
-    public void addLike(int filmId, int userId) {
+    // Лайк и счётчик в films.likes_count меняются в одной транзакции сервиса.
+    // В режиме write-behind лайк ставится в очередь и пишется в БД пачкой позже.
+    // likedAt записывается в created_at. return true, если лайк поставлен; false — он уже был
+    // либо фильма или пользователя нет (отличить можно через hasLike)
+    public boolean addLike(int filmId, int userId, Instant likedAt) {
+        if (writeBuffer.isEnabled()) {
+            return writeBuffer.enqueueAdd(filmId, userId, likedAt);
+        }
+        try {
+            if (jdbc.update(INSERT_LIKE_IF_ABSENT, userId, filmId, Timestamp.from(likedAt)) == 0) {
+                return false;
+            }
+        } catch (DuplicateKeyException e) {
+            // Такой же лайк вставила параллельная транзакция, пока эта ждала блокировку строки
+            return false;
+        }
         jdbc.update(
-                "INSERT INTO likes(film_id, user_id) VALUES (?, ?)",
-                filmId, userId
+                "UPDATE films SET likes_count = likes_count + 1 WHERE film_id = ?",
+                filmId
         );
+        return true;
     }
 
-    public void removeLike(int filmId, int userId) {
-        jdbc.update(
-                "DELETE FROM likes WHERE film_id = ? AND user_id = ?",
+    // return время постановки удалённого лайка или empty, если лайка не было
+    public Optional<Instant> removeLike(int filmId, int userId) {
+        if (writeBuffer.isEnabled()) {
+            return writeBuffer.enqueueRemove(filmId, userId);
+        }
+        // OLD TABLE возвращает удалённые строки тем же запросом, без отдельного SELECT
+        List<Timestamp> removed = jdbc.queryForList(
+                "SELECT created_at FROM OLD TABLE (DELETE FROM likes WHERE film_id = ? AND user_id = ?)",
+                Timestamp.class,
                 filmId, userId
         );
+        if (removed.isEmpty()) {
+            return Optional.empty();
+        }
+        jdbc.update(
+                "UPDATE films SET likes_count = likes_count - ? WHERE film_id = ?",
+                removed.size(), filmId
+        );
+        return Optional.of(removed.get(0).toInstant());
     }
 
     public boolean hasLike(int filmId, int userId) {
+        Optional<LikeWriteBuffer.PendingLike> pendingOp = writeBuffer.pendingState(filmId, userId);
+        if (pendingOp.isPresent()) {
+            return pendingOp.get().liked();
+        }
         Integer cnt = jdbc.queryForObject(
                 "SELECT COUNT(*) FROM likes WHERE film_id = ? AND user_id = ?",
                 Integer.class,
@@ -40,12 +94,15 @@ public class LikeRepository {
     }
 
     public int countLikes(int filmId) {
-        Integer cnt = jdbc.queryForObject(
-                "SELECT COUNT(*) FROM likes WHERE film_id = ?",
+        List<Integer> counts = jdbc.queryForList(
+                "SELECT likes_count FROM films WHERE film_id = ?",
                 Integer.class,
                 filmId
         );
-        return cnt == null ? 0 : cnt;
+        int stored = counts.isEmpty() ? 0 : counts.get(0);
+
+        // Ожидающее добавление — лайка ещё нет в БД, ожидающее удаление — он там ещё есть
+        return Math.max(0, stored + writeBuffer.pendingLikeDelta(filmId));
     }
 
     public Set<Integer> getUserIdsByFilm(int filmId) {
@@ -54,6 +111,110 @@ public class LikeRepository {
                 Integer.class,
                 filmId
         );
-        return new HashSet<>(ids);
+        Set<Integer> result = new HashSet<>(ids);
+        writeBuffer.pendingForFilm(filmId).forEach((userId, op) -> {
+            if (op.liked()) {
+                result.add(userId);
+            } else {
+                result.remove(userId);
+            }
+        });
+        return result;
+    }
+
+    // Количество лайков по каждому фильму, включая фильмы без лайков
+    public Map<Integer, Integer> countLikesByFilm() {
+        writeBuffer.flush();
+        Map<Integer, Integer> result = new HashMap<>();
+        jdbc.query(
+                "SELECT f.film_id, COUNT(l.user_id) AS cnt " +
+                        "FROM films f " +
+                        "LEFT JOIN likes l ON l.film_id = f.film_id " +
+                        "WHERE NOT f.deleted " +
+                        "GROUP BY f.film_id",
+                rs -> {
+                    result.put(rs.getInt("film_id"), rs.getInt("cnt"));
+                }
+        );
+        return result;
+    }
+
+    // Обходит лайки, поставленные начиная с since, не загружая их в память целиком
+    public void forEachLikeSince(Instant since, BiConsumer<Integer, Instant> action) {
+        writeBuffer.flush();
+        jdbc.query(
+                "SELECT l.film_id, l.created_at FROM likes l " +
+                        "JOIN films f ON f.film_id = l.film_id AND NOT f.deleted " +
+                        "WHERE l.created_at >= ?",
+                rs -> {
+                    action.accept(rs.getInt("film_id"), rs.getTimestamp("created_at").toInstant());
+                },
+                Timestamp.from(since)
+        );
+    }
+
+    /**
+     * Пакетная вставка лайков; уже существующие и ссылающиеся на отсутствующие фильм/пользователя пропускаются.
+     * Счётчики likes_count увеличиваются на число реально вставленных строк. Вызывать внутри транзакции.
+     *
+     * @return количество вставленных лайков
+     */
+    public int insertBatch(List<NewLike> likes) {
+        if (likes.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> args = likes.stream()
+                .map(like -> new Object[]{like.userId(), like.filmId(), Timestamp.from(like.createdAt())})
+                .toList();
+        int[] counts = jdbc.batchUpdate(INSERT_LIKE_IF_ABSENT, args);
+
+        Map<Integer, Integer> deltas = new HashMap<>();
+        int inserted = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                inserted++;
+                deltas.merge(likes.get(i).filmId(), 1, Integer::sum);
+            }
+        }
+        List<Object[]> deltaArgs = deltas.entrySet().stream()
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .toList();
+        if (!deltaArgs.isEmpty()) {
+            jdbc.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?", deltaArgs);
+        }
+        return inserted;
+    }
+
+    /**
+     * Удалить не больше limit лайков пользователя и уменьшить likes_count затронутых фильмов.
+     * Вызывать внутри транзакции.
+     *
+     * @return удалённые лайки: фильм и время постановки
+     */
+    public List<PurgedLike> deleteUserLikesChunk(int userId, int limit) {
+        List<PurgedLike> removed = jdbc.query(
+                "SELECT film_id, created_at FROM OLD TABLE " +
+                        "(DELETE FROM likes WHERE user_id = ? FETCH FIRST ? ROWS ONLY)",
+                (rs, rowNum) -> new PurgedLike(rs.getInt("film_id"), rs.getTimestamp("created_at").toInstant()),
+                userId, limit
+        );
+        List<Object[]> deltaArgs = removed.stream()
+                .map(like -> new Object[]{like.filmId()})
+                .toList();
+        if (!deltaArgs.isEmpty()) {
+            jdbc.batchUpdate("UPDATE films SET likes_count = likes_count - 1 WHERE film_id = ?", deltaArgs);
+        }
+        return removed;
+    }
+
+    // Удалить не больше limit лайков фильма; счётчик удаляемого фильма не поддерживается
+    public int deleteFilmLikesChunk(int filmId, int limit) {
+        return jdbc.update("DELETE FROM likes WHERE film_id = ? FETCH FIRST ? ROWS ONLY", filmId, limit);
+    }
+
+    public record NewLike(int filmId, int userId, Instant createdAt) {
+    }
+
+    public record PurgedLike(int filmId, Instant likedAt) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,413 @@
+package ru.yandex.practicum.filmorate.repository.repository;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Буфер отложенной записи лайков (write-behind).
+ * Включается свойством filmorate.likes.write-behind.enabled. Операции копятся в памяти,
+ * противоположные операции над одной парой (фильм, пользователь) взаимно уничтожаются,
+ * остальное сбрасывается пачками через batchUpdate по таймеру или при переполнении очереди.
+ * Переполнение только будит фоновый сброс: поток запроса не ждёт записи, держа соединение.
+ * Если очередь выросла вдвое сверх max-pending, новые операции отклоняются до сброса.
+ * Операции, поставленные внутри транзакции, не сбрасываются до её фиксации и отменяются при откате;
+ * пока транзакция не завершилась, пару (фильм, пользователь) не может менять другой запрос.
+ * Чтения LikeRepository учитывают ещё не сброшенные операции.
+ */
+@Component
+@Slf4j
+public class LikeWriteBuffer {
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxPending;
+
+    // Операции, ожидающие сброса
+    private final ConcurrentMap<LikeKey, PendingLike> pending = new ConcurrentHashMap<>();
+    // Вторичный индекс pending по фильму: film_id -> user_id пар с ожидающей операцией
+    private final ConcurrentMap<Integer, Set<Integer>> pendingUsersByFilm = new ConcurrentHashMap<>();
+    // Пары, изменённые ещё не завершённой транзакцией: сброс их пропускает, другие запросы получают отказ.
+    // Меняются только внутри pending.compute по той же паре
+    private final ConcurrentMap<LikeKey, TransactionOps> lockedKeys = new ConcurrentHashMap<>();
+    // Операции, которые сейчас пишутся в БД, и они же по фильму; видны чтениям до фиксации пачки
+    private volatile Map<LikeKey, PendingLike> inFlight = Map.of();
+    private volatile Map<Integer, Map<Integer, PendingLike>> inFlightByFilm = Map.of();
+    // Число завершённых сбросов: по нему видно, что прочитанная до compute строка БД могла устареть
+    private final AtomicLong flushes = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Внеочередной сброс при переполнении идёт в своём потоке, не в потоке запроса
+    private final ExecutorService flusher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "like-write-behind-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    public LikeWriteBuffer(JdbcTemplate jdbc,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.max-pending:10000}") int maxPending) {
+        this.jdbc = jdbc;
+        // Сброс может начаться внутри транзакции запроса, но не должен от неё зависеть
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Поставить добавление лайка в очередь.
+     *
+     * @return true, если лайк появился; false — он уже был
+     */
+    boolean enqueueAdd(int filmId, int userId, Instant at) {
+        return change(new LikeKey(filmId, userId), true, at).isPresent();
+    }
+
+    /**
+     * Поставить удаление лайка в очередь.
+     *
+     * @return время постановки удаляемого лайка или empty, если лайка не было
+     */
+    Optional<Instant> enqueueRemove(int filmId, int userId) {
+        return change(new LikeKey(filmId, userId), false, Instant.now());
+    }
+
+    // Последняя ещё не записанная операция над парой, если есть
+    Optional<PendingLike> pendingState(int filmId, int userId) {
+        return Optional.ofNullable(currentOp(new LikeKey(filmId, userId)));
+    }
+
+    // Ещё не записанные операции над лайками фильма: user_id -> последняя операция
+    Map<Integer, PendingLike> pendingForFilm(int filmId) {
+        Map<Integer, PendingLike> result = new HashMap<>();
+        opsForFilm(filmId).forEach((userId, ops) -> result.put(userId, ops[1] != null ? ops[1] : ops[0]));
+        return result;
+    }
+
+    /**
+     * Поправка к films.likes_count на ещё не записанные операции фильма.
+     * Операция в очереди поверх операции из пишущейся пачки возвращает пару в записанное состояние,
+     * поэтому по такой паре поправка нулевая: учитываются обе операции, а не только последняя.
+     */
+    int pendingLikeDelta(int filmId) {
+        int delta = 0;
+        for (PendingLike[] ops : opsForFilm(filmId).values()) {
+            for (PendingLike op : ops) {
+                if (op != null) {
+                    delta += op.liked() ? 1 : -1;
+                }
+            }
+        }
+        return delta;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.likes.write-behind.flush-interval-ms:200}")
+    public void scheduledFlush() {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+        flush();
+    }
+
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Map<LikeKey, PendingLike> batch = new ConcurrentHashMap<>();
+            Map<Integer, Map<Integer, PendingLike>> batchByFilm = new ConcurrentHashMap<>();
+            inFlight = batch;
+            inFlightByFilm = batchByFilm;
+            // Перенос в inFlight атомарен по ключу: операция попадает в batch раньше, чем уходит из pending
+            for (LikeKey key : pending.keySet()) {
+                pending.computeIfPresent(key, (k, op) -> {
+                    if (lockedKeys.containsKey(k)) {
+                        // Транзакция запроса ещё не зафиксирована
+                        return op;
+                    }
+                    batch.put(k, op);
+                    batchByFilm.computeIfAbsent(k.filmId(), f -> new ConcurrentHashMap<>()).put(k.userId(), op);
+                    indexPending(k, op, null);
+                    return null;
+                });
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+                log.debug("Сброшено {} операций с лайками за {} мкс",
+                        batch.size(), (System.nanoTime() - start) / 1_000);
+            } catch (RuntimeException e) {
+                // Более новые операции над той же парой важнее возвращаемых
+                batch.forEach((key, op) -> pending.compute(key, (k, newer) -> {
+                    if (newer != null) {
+                        return newer;
+                    }
+                    indexPending(k, null, op);
+                    return op;
+                }));
+                log.error("Не удалось сбросить {} операций с лайками, повтор при следующем сбросе",
+                        batch.size(), e);
+            }
+            // Раньше очистки inFlight: change, не нашедший пару в inFlight, увидит и новый счётчик
+            flushes.incrementAndGet();
+        } finally {
+            inFlight = Map.of();
+            inFlightByFilm = Map.of();
+            flushLock.unlock();
+        }
+    }
+
+    private void write(Map<LikeKey, PendingLike> batch) {
+        List<LikeKey> addKeys = new ArrayList<>();
+        List<Object[]> addArgs = new ArrayList<>();
+        List<LikeKey> removeKeys = new ArrayList<>();
+        List<Object[]> removeArgs = new ArrayList<>();
+        batch.forEach((key, op) -> {
+            if (op.liked()) {
+                addKeys.add(key);
+                addArgs.add(new Object[]{key.userId(), key.filmId(), Timestamp.from(op.at())});
+            } else {
+                removeKeys.add(key);
+                removeArgs.add(new Object[]{key.filmId(), key.userId()});
+            }
+        });
+
+        // Счётчики likes_count меняются только на реально вставленные/удалённые строки
+        Map<Integer, Integer> deltas = new HashMap<>();
+        if (!addArgs.isEmpty()) {
+            int[] added = jdbc.batchUpdate(LikeRepository.INSERT_LIKE_IF_ABSENT, addArgs);
+            for (int i = 0; i < added.length; i++) {
+                if (added[i] > 0) {
+                    deltas.merge(addKeys.get(i).filmId(), 1, Integer::sum);
+                }
+            }
+        }
+        if (!removeArgs.isEmpty()) {
+            int[] removed = jdbc.batchUpdate("DELETE FROM likes WHERE film_id = ? AND user_id = ?", removeArgs);
+            for (int i = 0; i < removed.length; i++) {
+                if (removed[i] > 0) {
+                    deltas.merge(removeKeys.get(i).filmId(), -1, Integer::sum);
+                }
+            }
+        }
+
+        List<Object[]> deltaArgs = new ArrayList<>();
+        deltas.forEach((filmId, delta) -> {
+            if (delta != 0) {
+                deltaArgs.add(new Object[]{delta, filmId});
+            }
+        });
+        if (!deltaArgs.isEmpty()) {
+            jdbc.batchUpdate("UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?", deltaArgs);
+        }
+    }
+
+    /**
+     * Атомарно перевести пару в состояние liked. Строка из БД читается до compute, вне блокировки
+     * ConcurrentHashMap; если за это время над парой появилась операция или завершился сброс,
+     * чтение повторяется. Внутри транзакции изменение регистрируется в её TransactionOps.
+     *
+     * @return empty, если пара уже в этом состоянии; иначе время лайка: нового при добавлении,
+     * удаляемого при удалении
+     */
+    private Optional<Instant> change(LikeKey key, boolean liked, Instant at) {
+        rejectIfOverloaded();
+        TransactionOps owner = currentTransaction();
+        while (true) {
+            long flushesSeen = flushes.get();
+            Optional<Instant> stored = currentOp(key) == null ? storedLikedAt(key) : null;
+            Instant[] result = {null};
+            boolean[] stale = {false};
+            pending.compute(key, (k, old) -> {
+                TransactionOps lockedBy = lockedKeys.get(k);
+                if (lockedBy != null && lockedBy != owner) {
+                    throw new IllegalStateException("Лайк фильма " + k.filmId() + " пользователем " + k.userId() +
+                            " сейчас меняет другой запрос, повторите позже");
+                }
+                PendingLike current = old != null ? old : inFlight.get(k);
+                Optional<Instant> likedAt;
+                if (current != null) {
+                    likedAt = current.liked() ? Optional.of(current.at()) : Optional.empty();
+                } else if (stored != null && flushes.get() == flushesSeen) {
+                    likedAt = stored;
+                } else {
+                    stale[0] = true;
+                    return old;
+                }
+                if (likedAt.isPresent() == liked) {
+                    return old;
+                }
+                result[0] = liked ? at : likedAt.get();
+                // Противоположная ожидающая операция той же пары взаимно уничтожается с новой
+                PendingLike next = old != null ? null : new PendingLike(liked, at);
+                indexPending(k, old, next);
+                if (owner != null) {
+                    lockedKeys.put(k, owner);
+                    owner.changes.add(new Change(k, old, next));
+                }
+                return next;
+            });
+            if (!stale[0]) {
+                requestFlushIfFull();
+                return Optional.ofNullable(result[0]);
+            }
+        }
+    }
+
+    private PendingLike currentOp(LikeKey key) {
+        // Сначала pending: перенос кладёт операцию в inFlight раньше, чем убирает её из pending
+        PendingLike op = pending.get(key);
+        return op != null ? op : inFlight.get(key);
+    }
+
+    // Незаписанные операции фильма: user_id -> {операция из пишущейся пачки, операция в очереди}
+    private Map<Integer, PendingLike[]> opsForFilm(int filmId) {
+        Map<Integer, PendingLike[]> result = new HashMap<>();
+        for (Integer userId : pendingUsersByFilm.getOrDefault(filmId, Set.of())) {
+            PendingLike op = pending.get(new LikeKey(filmId, userId));
+            if (op != null) {
+                result.computeIfAbsent(userId, u -> new PendingLike[2])[1] = op;
+            }
+        }
+        inFlightByFilm.getOrDefault(filmId, Map.of()).forEach((userId, op) -> {
+            PendingLike[] ops = result.computeIfAbsent(userId, u -> new PendingLike[2]);
+            // Та же операция могла перейти из очереди в пачку, пока шло чтение
+            if (ops[1] != op) {
+                ops[0] = op;
+            }
+        });
+        return result;
+    }
+
+    // Вызывать внутри pending.compute по этой паре
+    private void indexPending(LikeKey key, PendingLike old, PendingLike next) {
+        if (old == null && next != null) {
+            pendingUsersByFilm.compute(key.filmId(), (f, users) -> {
+                Set<Integer> result = users != null ? users : ConcurrentHashMap.newKeySet();
+                result.add(key.userId());
+                return result;
+            });
+        } else if (old != null && next == null) {
+            pendingUsersByFilm.computeIfPresent(key.filmId(), (f, users) -> {
+                users.remove(key.userId());
+                return users.isEmpty() ? null : users;
+            });
+        }
+    }
+
+    // Операции текущей транзакции или null вне транзакции
+    private TransactionOps currentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        TransactionOps ops = (TransactionOps) TransactionSynchronizationManager.getResource(this);
+        if (ops == null) {
+            ops = new TransactionOps();
+            TransactionSynchronizationManager.bindResource(this, ops);
+            TransactionSynchronizationManager.registerSynchronization(ops);
+        }
+        return ops;
+    }
+
+    private Optional<Instant> storedLikedAt(LikeKey key) {
+        return jdbc.queryForList(
+                "SELECT created_at FROM likes WHERE film_id = ? AND user_id = ?",
+                Timestamp.class,
+                key.filmId(), key.userId()
+        ).stream().findFirst().map(Timestamp::toInstant);
+    }
+
+    private void requestFlushIfFull() {
+        if (pending.size() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                try {
+                    flush();
+                } finally {
+                    flushRequested.set(false);
+                }
+            });
+        }
+    }
+
+    private void rejectIfOverloaded() {
+        // Сброс не успевает за входящим потоком: не копим операции в памяти без предела
+        if (pending.size() >= 2L * maxPending) {
+            requestFlushIfFull();
+            throw new ServiceUnavailableException("Очередь записи лайков переполнена, повторите запрос позже");
+        }
+    }
+
+    record LikeKey(int filmId, int userId) {
+    }
+
+    private record Change(LikeKey key, PendingLike before, PendingLike after) {
+    }
+
+    // Изменения одной транзакции: после фиксации пары открываются для сброса, при откате возвращаются назад
+    private final class TransactionOps implements TransactionSynchronization {
+
+        private final List<Change> changes = new ArrayList<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(LikeWriteBuffer.this);
+            if (status != STATUS_COMMITTED) {
+                // Пары заблокированы этой транзакцией, поэтому в pending лежит ровно её последнее изменение
+                for (int i = changes.size() - 1; i >= 0; i--) {
+                    Change change = changes.get(i);
+                    pending.compute(change.key(), (k, op) -> {
+                        indexPending(k, op, change.before());
+                        return change.before();
+                    });
+                }
+                log.debug("Откат транзакции: отменено {} операций с лайками", changes.size());
+            }
+            for (Change change : changes) {
+                lockedKeys.remove(change.key(), this);
+            }
+            if (status == STATUS_COMMITTED) {
+                requestFlushIfFull();
+            }
+        }
+    }
+
+    record PendingLike(boolean liked, Instant at) {
+    }
+}
@@ -4,13 +4,21 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.repository.mapper.UserRowMapper;
+import ru.yandex.practicum.filmorate.storage.existenceStorage.KnownIds;
+import ru.yandex.practicum.filmorate.storage.searchStorage.PrefixIndex;
 
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public class UserRepository extends BaseRepository<User> {
 
+    // id существующих пользователей: проверка существования без чтения пользователя
+    private final KnownIds knownIds = new KnownIds(this::findAllIds,
+            id -> !jdbc.queryForList("select 1 from users where user_id = ? and not deleted", Integer.class, id).isEmpty());
+
     public UserRepository(JdbcTemplate jdbc) {
         super(jdbc, new UserRowMapper());
     }
@@ -24,30 +32,88 @@ public class UserRepository extends BaseRepository<User> {
                 user.getBirthday()
         );
         user.setId((int) id);
+        user.setVersion(0L);
+        knownIds.onCreated(user.getId());
         return user;
     }
 
-    public User update(User user) {
-        update(
-                "update users set email = ?, login = ?, name = ?, birthday = ? where user_id = ?",
+    // Обновить пользователя, если его версия совпадает с user.getVersion() (без версии — безусловно).
+    // return пользователь с новой версией или empty, если его нет или его уже изменили
+    public Optional<User> update(User user) {
+        Optional<Long> version = updateVersioned(
+                "update users set email = ?, login = ?, name = ?, birthday = ?, version = version + 1 where user_id = ? and not deleted",
+                user.getVersion(),
                 user.getEmail(),
                 user.getLogin(),
                 user.getName(),
                 user.getBirthday(),
                 user.getId()
         );
-        return user;
+        version.ifPresent(user::setVersion);
+        return version.map(v -> user);
     }
 
+    // Мягкое удаление: пользователь сразу скрыт от чтений, лайки и дружбу вычищает DeletionPurger
     public boolean deleteById(int id) {
-        return delete("delete from users where user_id = ?", id);
+        boolean deleted = delete("update users set deleted = true, version = version + 1 where user_id = ? and not deleted", id);
+        if (deleted) {
+            knownIds.onDeleted(id);
+        }
+        return deleted;
+    }
+
+    // Мягко удалённые пользователи, ожидающие очистки, по возрастанию id
+    public List<Integer> findDeletedIds(int limit) {
+        return jdbc.queryForList("select user_id from users where deleted order by user_id limit ?", Integer.class, limit);
+    }
+
+    public int countDeleted() {
+        Integer count = jdbc.queryForObject("select count(*) from users where deleted", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    // Окончательно удалить мягко удалённого пользователя, если у него не осталось зависимых строк.
+    // Лайк или дружба, записанные после очистки, не удаляются каскадом мимо счётчиков, а ждут следующей порции
+    public boolean purge(int id) {
+        return jdbc.update("delete from users where user_id = ? and deleted " +
+                        "and not exists (select 1 from likes where user_id = ?) " +
+                        "and not exists (select 1 from friends where user_id = ? or friend_id = ?)",
+                id, id, id, id) > 0;
+    }
+
+    // Существует ли пользователь: обычно из памяти, без запроса к БД
+    public boolean existsById(int id) {
+        return knownIds.contains(id);
     }
 
     public Optional<User> findById(int id) {
-        return findOne("select * from users where user_id = ?", id);
+        return findOne("select * from users where user_id = ? and not deleted", id);
     }
 
     public List<User> findAll() {
-        return findMany("select * from users");
+        return findMany("select * from users where not deleted");
+    }
+
+    // Пользователи по набору id одним запросом; порядок не гарантируется
+    public List<User> findByIds(Collection<Integer> ids) {
+        return findManyByIds("select * from users where user_id = ANY(?) and not deleted", ids);
+    }
+
+    // Страница пользователей по возрастанию id, строго после afterId
+    public List<User> findPage(int afterId, int limit) {
+        return findMany("select * from users where user_id > ? and not deleted order by user_id limit ?", afterId, limit);
+    }
+
+    // Логины с числом пользователей, добавивших их в друзья, для индекса подсказок
+    public List<PrefixIndex.Entry> findSuggestEntries() {
+        return jdbc.query("SELECT u.user_id, u.login, COUNT(f.user_id) AS followers " +
+                        "FROM users u LEFT JOIN friends f ON f.friend_id = u.user_id " +
+                        "WHERE NOT u.deleted " +
+                        "GROUP BY u.user_id, u.login",
+                (rs, rowNum) -> new PrefixIndex.Entry(rs.getInt("user_id"), rs.getString("login"), rs.getInt("followers")));
+    }
+
+    public BitSet findAllIds() {
+        return loadIds("select user_id from users where not deleted");
     }
 }
@@ -0,0 +1,232 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.repository.FriendRepository;
+import ru.yandex.practicum.filmorate.repository.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.repository.repository.UserRepository;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.TrendingLikeCounter;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.UserSuggestIndex;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Фоновая очистка мягко удалённых пользователей и фильмов.
+ * Удаление через API только помечает строку, а лайки, дружбу и связи с жанрами
+ * эта очистка удаляет порциями по chunk-size строк, каждая порция — отдельная короткая транзакция.
+ * Когда зависимых строк не осталось, удаляется сама строка. За один запуск выполняется
+ * не больше max-chunks-per-run порций, чтобы не занимать общий поток планировщика.
+ */
+@Service
+@Slf4j
+public class DeletionPurger {
+
+    private final FilmRepository filmRepository;
+    private final UserRepository userRepository;
+    private final LikeRepository likeRepository;
+    private final FriendRepository friendRepository;
+    private final GenreRepository genreRepository;
+    private final FilmPopularityIndex popularityIndex;
+    private final TrendingLikeCounter trendingCounter;
+    private final FilmSuggestIndex filmSuggestIndex;
+    private final UserSuggestIndex userSuggestIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxChunksPerRun;
+
+    // Плановый и ручной запуск не выполняются одновременно
+    private final ReentrantLock runLock = new ReentrantLock();
+    private final LongAdder purgedUsers = new LongAdder();
+    private final LongAdder purgedFilms = new LongAdder();
+    private final LongAdder purgedRows = new LongAdder();
+    private final LongAdder chunks = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private volatile Instant lastRunAt;
+    private volatile long lastRunMs;
+    private volatile long lastRunRows;
+
+    public DeletionPurger(FilmRepository filmRepository,
+                          UserRepository userRepository,
+                          LikeRepository likeRepository,
+                          FriendRepository friendRepository,
+                          GenreRepository genreRepository,
+                          FilmPopularityIndex popularityIndex,
+                          TrendingLikeCounter trendingCounter,
+                          FilmSuggestIndex filmSuggestIndex,
+                          UserSuggestIndex userSuggestIndex,
+                          TransactionTemplate transactionTemplate,
+                          @Value("${filmorate.purge.chunk-size:1000}") int chunkSize,
+                          @Value("${filmorate.purge.max-chunks-per-run:50}") int maxChunksPerRun) {
+        if (chunkSize <= 0 || maxChunksPerRun <= 0) {
+            throw new IllegalArgumentException("chunk-size и max-chunks-per-run должны быть положительными");
+        }
+        this.filmRepository = filmRepository;
+        this.userRepository = userRepository;
+        this.likeRepository = likeRepository;
+        this.friendRepository = friendRepository;
+        this.genreRepository = genreRepository;
+        this.popularityIndex = popularityIndex;
+        this.trendingCounter = trendingCounter;
+        this.filmSuggestIndex = filmSuggestIndex;
+        this.userSuggestIndex = userSuggestIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerRun = maxChunksPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.purge.interval-ms:1000}")
+    public void scheduledPurge() {
+        try {
+            purge();
+        } catch (RuntimeException e) {
+            // Недочищенные строки остаются помеченными и будут обработаны следующим запуском
+            log.warn("Ошибка фоновой очистки удалённых записей", e);
+        }
+    }
+
+    /**
+     * Один запуск очистки: сначала пользователи (их лайки влияют на счётчики живых фильмов), затем фильмы.
+     * Если очистка уже идёт, возвращает текущую статистику, не дожидаясь её окончания.
+     */
+    public Stats purge() {
+        if (!runLock.tryLock()) {
+            return stats();
+        }
+        try {
+            long start = System.nanoTime();
+            long rowsBefore = purgedRows.sum();
+            int[] budget = {maxChunksPerRun};
+
+            boolean exhausted = false;
+            for (Integer userId : userRepository.findDeletedIds(maxChunksPerRun)) {
+                if (!purgeEntity(userId, this::purgeUserChunk, budget)) {
+                    exhausted = true;
+                    break;
+                }
+            }
+            if (!exhausted) {
+                for (Integer filmId : filmRepository.findDeletedIds(maxChunksPerRun)) {
+                    if (!purgeEntity(filmId, this::purgeFilmChunk, budget)) {
+                        break;
+                    }
+                }
+            }
+
+            long elapsed = System.nanoTime() - start;
+            lastRunRows = purgedRows.sum() - rowsBefore;
+            if (budget[0] < maxChunksPerRun) {
+                // Холостые запуски не портят среднюю скорость
+                busyNanos.add(elapsed);
+                log.info("Очистка удалённых записей: {} строк за {} мс", lastRunRows, elapsed / 1_000_000);
+            }
+            lastRunMs = elapsed / 1_000_000;
+            lastRunAt = Instant.now();
+            return stats();
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    public Stats stats() {
+        long busyMs = busyNanos.sum() / 1_000_000;
+        long rows = purgedRows.sum();
+        return new Stats(
+                userRepository.countDeleted(),
+                filmRepository.countDeleted(),
+                purgedUsers.sum(),
+                purgedFilms.sum(),
+                rows,
+                chunks.sum(),
+                busyMs == 0 ? 0 : rows * 1000 / busyMs,
+                lastRunAt,
+                lastRunMs,
+                lastRunRows
+        );
+    }
+
+    // Порции одной записи, пока она не удалена или не кончился бюджет запуска.
+    // return true, если запись удалена полностью
+    private boolean purgeEntity(int id, IntUnaryOperator chunk, int[] budget) {
+        while (budget[0] > 0) {
+            budget[0]--;
+            chunks.increment();
+            Integer removed = transactionTemplate.execute(status -> chunk.applyAsInt(id));
+            if (removed == null || removed == 0) {
+                return true;
+            }
+            purgedRows.add(removed);
+        }
+        return false;
+    }
+
+    // Лайки, затем дружба пользователя; когда их не осталось — сам пользователь.
+    // return число удалённых зависимых строк, 0 — пользователь удалён окончательно
+    private int purgeUserChunk(int userId) {
+        List<LikeRepository.PurgedLike> likes = likeRepository.deleteUserLikesChunk(userId, chunkSize);
+        List<FriendRepository.Link> links = likes.size() < chunkSize
+                ? friendRepository.deleteUserLinksChunk(userId, chunkSize - likes.size())
+                : List.of();
+        if (likes.isEmpty() && links.isEmpty()) {
+            if (userRepository.purge(userId)) {
+                AfterCommit.run(purgedUsers::increment);
+                log.debug("Пользователь с ID {} удалён окончательно", userId);
+            }
+            return 0;
+        }
+        AfterCommit.run(() -> {
+            // Удалённые фильмы уже убраны из индексов, их лайки не учитываются
+            for (LikeRepository.PurgedLike like : likes) {
+                if (filmRepository.existsById(like.filmId())) {
+                    popularityIndex.onLikeRemoved(like.filmId());
+                    trendingCounter.onLikeRemoved(like.filmId(), like.likedAt());
+                    filmSuggestIndex.onLikeRemoved(like.filmId());
+                }
+            }
+            for (FriendRepository.Link link : links) {
+                if (link.userId() == userId && userRepository.existsById(link.friendId())) {
+                    userSuggestIndex.onFollowerRemoved(link.friendId());
+                }
+            }
+        });
+        return likes.size() + links.size();
+    }
+
+    // Лайки, затем связи с жанрами фильма; когда их не осталось — сам фильм.
+    // return число удалённых зависимых строк, 0 — фильм удалён окончательно
+    private int purgeFilmChunk(int filmId) {
+        int removed = likeRepository.deleteFilmLikesChunk(filmId, chunkSize);
+        if (removed < chunkSize) {
+            removed += genreRepository.deleteGenresForFilmChunk(filmId, chunkSize - removed);
+        }
+        if (removed == 0 && filmRepository.purge(filmId)) {
+            AfterCommit.run(purgedFilms::increment);
+            log.debug("Фильм с ID {} удалён окончательно", filmId);
+        }
+        return removed;
+    }
+
+    public record Stats(
+            int pendingUsers,
+            int pendingFilms,
+            long purgedUsers,
+            long purgedFilms,
+            long purgedRows,
+            long chunks,
+            long rowsPerSecond,
+            Instant lastRunAt,
+            long lastRunMs,
+            long lastRunRows
+    ) {
+    }
+}
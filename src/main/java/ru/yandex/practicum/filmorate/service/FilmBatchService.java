@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmBatchResult;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.MpaRating;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.storage.facetStorage.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетное создание фильмов.
+ * Каждый фильм проверяется отдельно (аннотации модели и справочники в памяти), ошибки возвращаются по позициям.
+ * Корректные фильмы пишутся одной транзакцией через batch INSERT и не перечитываются из БД:
+ * жанры и MPA заполняются из справочников.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FilmBatchService {
+
+    private final FilmRepository filmRepository;
+    private final GenreService genreService;
+    private final MpaService mpaService;
+    private final Validator validator;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex suggestIndex;
+    private final FilmFacetIndex facetIndex;
+
+    @Transactional
+    public FilmBatchResult createBatch(List<Film> films, int maxSize) {
+        if (films == null || films.isEmpty()) {
+            throw new IllegalArgumentException("Список фильмов не может быть пустым");
+        }
+        if (films.size() > maxSize) {
+            throw new IllegalArgumentException("Не больше " + maxSize + " фильмов за запрос");
+        }
+        log.info("Пакетное создание {} фильмов", films.size());
+
+        String[] errors = new String[films.size()];
+        List<Film> accepted = new ArrayList<>(films.size());
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            errors[i] = film == null ? "пустой элемент" : validate(film);
+            if (errors[i] == null) {
+                accepted.add(film);
+            }
+        }
+
+        List<Film> created = filmRepository.createBatch(accepted);
+        AfterCommit.run(() -> created.forEach(film -> {
+            popularityIndex.onFilmSaved(film);
+            searchIndex.onFilmSaved(film);
+            suggestIndex.onFilmSaved(film);
+            facetIndex.onFilmSaved(film);
+        }));
+
+        List<FilmBatchResult.Item> items = new ArrayList<>(films.size());
+        Iterator<Film> createdFilms = created.iterator();
+        for (int i = 0; i < films.size(); i++) {
+            items.add(errors[i] == null
+                    ? new FilmBatchResult.Item(i, createdFilms.next(), null)
+                    : new FilmBatchResult.Item(i, null, errors[i]));
+        }
+        log.info("Пакетное создание: создано {}, отклонено {}", created.size(), films.size() - created.size());
+        return new FilmBatchResult(created.size(), films.size() - created.size(), items);
+    }
+
+    // Текст ошибки или null; у корректного фильма жанры и MPA заменяются полными данными справочника
+    private String validate(Film film) {
+        Set<ConstraintViolation<Film>> violations = validator.validate(film);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+
+        MpaRating mpa = null;
+        if (film.getMpa() != null && film.getMpa().getId() != null) {
+            Optional<MpaRating> found = mpaService.findById(film.getMpa().getId());
+            if (found.isEmpty()) {
+                return "Рейтинг MPA с id " + film.getMpa().getId() + " не найден";
+            }
+            mpa = found.get();
+        }
+
+        // Как при обычном создании: жанры по возрастанию id
+        Map<Integer, Genre> genres = new TreeMap<>();
+        for (Genre genre : film.getGenres()) {
+            if (genre == null || genre.getId() == null) {
+                return "ID жанра не может быть null";
+            }
+            Optional<Genre> found = genreService.findById(genre.getId());
+            if (found.isEmpty()) {
+                return "Жанр с id " + genre.getId() + " не найден";
+            }
+            genres.put(genre.getId(), found.get());
+        }
+
+        film.setMpa(mpa);
+        film.setGenres(new LinkedHashSet<>(genres.values()));
+        return null;
+    }
+}
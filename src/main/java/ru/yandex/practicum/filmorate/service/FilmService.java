@@ -2,75 +2,111 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmBrowsePage;
 import ru.yandex.practicum.filmorate.model.film.Genre;
 import ru.yandex.practicum.filmorate.repository.repository.*;
-
+import ru.yandex.practicum.filmorate.storage.facetStorage.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.TrendingLikeCounter;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.PrefixIndex;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FilmService {
 
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     private final FilmRepository filmRepository;
     private final GenreRepository genreRepository;
     private final LikeRepository likeRepository;
     private final UserRepository userRepository;
     private final GenreService genreService;
-    private final MpaRatingRepository mpaRepository;
+    private final MpaService mpaService;
+    private final FilmPopularityIndex popularityIndex;
+    private final TrendingLikeCounter trendingCounter;
+    private final FilmSearchIndex searchIndex;
+    private final FilmSuggestIndex suggestIndex;
+    private final FilmFacetIndex facetIndex;
 
     @Transactional
     public Film create(Film film) {
         log.info("Попытка создать фильм: {}", film.getName());
 
-        // Валидация MPA
+        // MPA и жанры заполняются полными данными из справочника в памяти ПЕРЕД сохранением,
+        // поэтому ответ собирается из входных данных без повторного чтения фильма из БД
         if (film.getMpa() != null && film.getMpa().getId() != null) {
-            if (!mpaRepository.existsById(film.getMpa().getId())) {
-                throw new EntityNotFoundException("Рейтинг MPA с id " + film.getMpa().getId() + " не найден");
-            }
+            Integer mpaId = film.getMpa().getId();
+            film.setMpa(mpaService.findById(mpaId)
+                    .orElseThrow(() -> new EntityNotFoundException("Рейтинг MPA с id " + mpaId + " не найден")));
         }
 
-        // Валидация и заполнение полных данных жанров ПЕРЕД сохранением
         if (film.getGenres() != null && !film.getGenres().isEmpty()) {
             genreService.validateGenres(film.getGenres());
 
-            //  Заполнить полные данные жанров из БД
-            Set<Genre> fullGenres = film.getGenres().stream()
-                    .map(genre -> genreService.getGenreById(genre.getId()))
-                    .collect(Collectors.toSet());
-            film.setGenres(fullGenres);
+            // Как при чтении из БД: жанры по возрастанию id
+            Map<Integer, Genre> fullGenres = new TreeMap<>();
+            for (Genre genre : film.getGenres()) {
+                fullGenres.put(genre.getId(), genreService.getGenreById(genre.getId()));
+            }
+            film.setGenres(new LinkedHashSet<>(fullGenres.values()));
         }
 
         Film created = filmRepository.create(film);
-
-        // Загрузка фильма со всеми связями из БД
-        Film result = getFilmById(created.getId());
-
-        log.debug("Фильм создан с ID={}", result.getId());
-        return result;
+        AfterCommit.run(() -> {
+            popularityIndex.onFilmSaved(created);
+            searchIndex.onFilmSaved(created);
+            suggestIndex.onFilmSaved(created);
+            facetIndex.onFilmSaved(created);
+        });
+
+        log.debug("Фильм создан с ID={}", created.getId());
+        return created;
     }
 
     @Transactional
     public Film update(Film film) {
         log.info("Попытка обновить фильм с ID {}", film.getId());
 
-        // Проверка существования
-        filmRepository.findById(film.getId())
-                .orElseThrow(() -> new EntityNotFoundException("Фильм с id " + film.getId() + " не найден"));
-
         // Валидация жанров
         if (film.getGenres() != null) {
             genreService.validateGenres(film.getGenres());
         }
 
-        Film updated = filmRepository.update(film);
+        // Без предварительного чтения: существование и версию проверяет сам UPDATE
+        Long expectedVersion = film.getVersion();
+        Film updated = filmRepository.update(film).orElseThrow(() -> {
+            if (expectedVersion != null && filmRepository.existsById(film.getId())) {
+                return new IllegalStateException("Фильм с id " + film.getId() + " уже изменён: версия "
+                        + expectedVersion + " устарела, перечитайте фильм и повторите");
+            }
+            return new EntityNotFoundException("Фильм с id " + film.getId() + " не найден");
+        });
+        AfterCommit.run(() -> {
+            popularityIndex.onFilmSaved(updated);
+            searchIndex.onFilmSaved(updated);
+            suggestIndex.onFilmSaved(updated);
+            facetIndex.onFilmSaved(updated);
+        });
 
         // Загрузка жанров из БД
         Set<Genre> genres = genreRepository.getGenresByFilmId(updated.getId());
@@ -85,12 +121,74 @@ public class FilmService {
         return filmRepository.findAll();
     }
 
+    // Все фильмы по одному, без загрузки каталога в память
+    public void exportFilms(Consumer<Film> sink) {
+        log.info("Потоковая выгрузка всех фильмов");
+        filmRepository.forEachFilm(sink);
+    }
+
+    // Несколько фильмов по списку id: два запроса (фильмы и жанры) на весь список
+    public MultiGetResult<Film> getFilmsByIds(List<Integer> ids, int maxIds) {
+        log.info("Получение фильмов по списку из {} id", ids == null ? 0 : ids.size());
+        List<Integer> requested = MultiGetResult.distinctIds(ids, maxIds);
+        return MultiGetResult.of(requested, filmRepository.findByIds(requested), Film::getId);
+    }
+
+    // Страница фильмов после id after; курсор следующей страницы — id последнего фильма
+    public Page<Film> getFilmsPage(int after, int limit) {
+        log.info("Получение страницы фильмов после ID {}, размер {}", after, limit);
+        Page.validateLimit(limit);
+        return Page.of(filmRepository.findPage(after, limit + 1), limit, Film::getId);
+    }
+
+    // Фасетный отбор: фильтр и счётчики — по битовым индексам, из БД грузится только страница фильмов
+    public FilmBrowsePage browseFilms(FilmFacetIndex.Filter filter, int after, int limit) {
+        log.info("Фасетный отбор фильмов {}, после ID {}, размер {}", filter, after, limit);
+        Page.validateLimit(limit);
+        validateRange(filter.yearFrom(), filter.yearTo(), "yearFrom", "yearTo");
+        validateRange(filter.durationMin(), filter.durationMax(), "durationMin", "durationMax");
+
+        FilmFacetIndex.Selection selection = facetIndex.select(filter, after, limit + 1);
+        Page<Film> page = Page.of(filmRepository.findByIds(selection.ids()), limit, Film::getId);
+        return new FilmBrowsePage(page.items(), page.nextCursor(), selection.total(), selection.facets());
+    }
+
     public Film getFilmById(Integer id) {
         log.info("Получение фильма с ID {}", id);
         return filmRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Фильм с id " + id + " не найден"));
     }
 
+    // Полнотекстовый поиск по названию и описанию; БД не используется
+    public FilmSearchIndex.SearchResult searchFilms(String query, int limit) {
+        log.info("Поиск фильмов по запросу '{}', размер {}", query, limit);
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Поисковый запрос не может быть пустым");
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("Размер выдачи должен быть от 1 до " + MAX_SEARCH_LIMIT);
+        }
+        return searchIndex.search(query, limit);
+    }
+
+    // Подсказки по началу названия, популярные фильмы первыми
+    public List<PrefixIndex.Entry> suggestFilms(String prefix, int limit) {
+        log.info("Подсказки по названиям фильмов для '{}', размер {}", prefix, limit);
+        PrefixIndex.validateQuery(prefix, limit);
+        return suggestIndex.suggest(prefix, limit);
+    }
+
+    // Версия фильма для ETag без загрузки жанров и сериализации
+    public long getFilmVersion(Integer id) {
+        return filmRepository.findVersion(id)
+                .orElseThrow(() -> new EntityNotFoundException("Фильм с id " + id + " не найден"));
+    }
+
+    // Версия рейтинга популярности для ETag списка популярных
+    public String getPopularVersionTag() {
+        return popularityIndex.versionTag();
+    }
+
     @Transactional
     public void deleteFilm(Integer id) {
         log.info("Удаление фильма с ID {}", id);
@@ -103,6 +201,13 @@ public class FilmService {
         if (!deleted) {
             throw new EntityNotFoundException("Не удалось удалить фильм с id " + id);
         }
+        AfterCommit.run(() -> {
+            popularityIndex.onFilmDeleted(id);
+            trendingCounter.onFilmDeleted(id);
+            searchIndex.onFilmDeleted(id);
+            suggestIndex.onFilmDeleted(id);
+            facetIndex.onFilmDeleted(id);
+        });
 
         log.info("Фильм с ID {} удален", id);
     }
@@ -111,18 +216,33 @@ public class FilmService {
     public void addLike(Integer filmId, Integer userId) {
         log.info("Пользователь с ID {} пытается поставить лайк фильму с ID {}", userId, filmId);
 
-        filmRepository.findById(filmId)
-                .orElseThrow(() -> new EntityNotFoundException("Фильм с id " + filmId + " не найден"));
+        requireFilmAndUser(filmId, userId);
 
-        userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с ID " + userId + " не найден"));
-
-        if (likeRepository.hasLike(filmId, userId)) {
+        // Одно время и для likes.created_at, и для корзины счётчика трендов
+        Instant likedAt = Instant.now();
+        boolean added;
+        try {
+            added = likeRepository.addLike(filmId, userId, likedAt);
+        } catch (DataIntegrityViolationException e) {
+            if (!ForeignKeys.isViolation(e)) {
+                throw e;
+            }
+            // Фильм или пользователь удалены после проверки: сработал внешний ключ likes
+            throw new EntityNotFoundException("Фильм с id " + filmId + " или пользователь с ID " + userId + " не найден");
+        }
+        if (!added) {
+            if (!likeRepository.hasLike(filmId, userId)) {
+                // Фильм или пользователь удалены после проверки, и лайк не записан
+                throw new EntityNotFoundException("Фильм с id " + filmId + " или пользователь с ID " + userId + " не найден");
+            }
             log.debug("Лайк уже поставлен пользователем с ID {}, пропускаем", userId);
             return;
         }
-
-        likeRepository.addLike(filmId, userId);
+        AfterCommit.run(() -> {
+            popularityIndex.onLikeAdded(filmId);
+            trendingCounter.onLikeAdded(filmId, likedAt);
+            suggestIndex.onLikeAdded(filmId);
+        });
         log.info("Пользователь с ID {} поставил лайк фильму с ID {}", userId, filmId);
     }
 
@@ -130,27 +250,49 @@ public class FilmService {
     public void removeLike(Integer filmId, Integer userId) {
         log.info("Пользователь с ID {} пытается убрать лайк с фильма с ID {}", userId, filmId);
 
-        filmRepository.findById(filmId)
-                .orElseThrow(() -> new EntityNotFoundException("Фильм с id " + filmId + " не найден"));
-
-        userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с ID " + userId + " не найден"));
+        requireFilmAndUser(filmId, userId);
 
         // Удаление лайка
-        likeRepository.removeLike(filmId, userId);
+        likeRepository.removeLike(filmId, userId).ifPresent(likedAt -> AfterCommit.run(() -> {
+            popularityIndex.onLikeRemoved(filmId);
+            trendingCounter.onLikeRemoved(filmId, likedAt);
+            suggestIndex.onLikeRemoved(filmId);
+        }));
 
         log.info("Пользователь с ID {} убрал лайк с фильма с ID {}", userId, filmId);
     }
 
-    // Список фильмов, отсортированных по количеству лайков
-    public Collection<Film> getTopMostLikedFilms(int limit) {
-        log.info("Получение топ-{} самых популярных фильмов", limit);
+    // Список фильмов, отсортированных по количеству лайков; жанр и год необязательны
+    public Collection<Film> getTopMostLikedFilms(int limit, Integer genreId, Integer year) {
+        log.info("Получение топ-{} самых популярных фильмов (жанр={}, год={})", limit, genreId, year);
+
+        // Порядок берётся из in-memory рейтинга, из БД загружаются только сами фильмы
+        List<Integer> topIds = popularityIndex.topFilmIds(limit, genreId, year);
+        return filmRepository.findByIds(topIds);
+    }
+
+    // Фильмы с наибольшим числом лайков за последнее окно (например, 24h)
+    public Collection<Film> getTrendingFilms(String window, int limit) {
+        log.info("Получение топ-{} трендовых фильмов за {}", limit, window);
+
+        Duration duration = trendingCounter.parseWindow(window);
+        List<Integer> topIds = trendingCounter.top(duration, limit);
+        return filmRepository.findByIds(topIds);
+    }
 
-        return filmRepository.findAll().stream()
-                .sorted(Comparator.comparingInt((Film film) ->
-                                likeRepository.countLikes(film.getId()))
-                        .reversed())
-                .limit(limit)
-                .toList();
+    // Проверка по множествам id в репозиториях, без загрузки фильма и пользователя
+    private void requireFilmAndUser(int filmId, int userId) {
+        if (!filmRepository.existsById(filmId)) {
+            throw new EntityNotFoundException("Фильм с id " + filmId + " не найден");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new EntityNotFoundException("Пользователь с ID " + userId + " не найден");
+        }
+    }
+
+    private static void validateRange(Integer from, Integer to, String fromName, String toName) {
+        if (from != null && to != null && from > to) {
+            throw new IllegalArgumentException(fromName + " не может быть больше " + toName);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+/**
+ * Отличает нарушение внешнего ключа от прочих ошибок целостности (CHECK, UNIQUE, NOT NULL):
+ * только оно означает, что связанная строка исчезла между проверкой и записью.
+ */
+final class ForeignKeys {
+
+    // 23503 — код SQL-стандарта, 23506 — H2: родительская строка не найдена
+    private static final Set<String> VIOLATION_STATES = Set.of("23503", "23506");
+
+    private ForeignKeys() {
+    }
+
+    static boolean isViolation(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && VIOLATION_STATES.contains(sql.getSQLState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
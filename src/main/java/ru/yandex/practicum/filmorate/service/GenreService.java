@@ -5,27 +5,28 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.film.Genre;
-import ru.yandex.practicum.filmorate.repository.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.storage.referenceStorage.ReferenceDataRegistry;
 
 import java.util.Collection;
+import java.util.Optional;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class GenreService {
 
-    private final GenreRepository genreRepository;
+    private final ReferenceDataRegistry referenceData;
 
     public Collection<Genre> getAllGenres() {
         log.info("Получение всех жанров");
-        Collection<Genre> genres = genreRepository.findAll();
+        Collection<Genre> genres = referenceData.getGenres();
         log.debug("Найдено жанров: {}", genres.size());
         return genres;
     }
 
     public Genre getGenreById(Integer id) {
         log.info("Получение жанра с id={}", id);
-        Genre genre = genreRepository.findById(id)
+        Genre genre = referenceData.findGenre(id)
                 .orElseThrow(() -> {
                     log.warn("Жанр с id={} не найден", id);
                     return new EntityNotFoundException("Жанр с id " + id + " не найден");
@@ -34,8 +35,13 @@ public class GenreService {
         return genre;
     }
 
+    // Поиск без логирования: для проверки больших пачек
+    public Optional<Genre> findById(Integer id) {
+        return referenceData.findGenre(id);
+    }
+
     public boolean existsById(Integer id) {
-        return genreRepository.existsById(id);
+        return referenceData.findGenre(id).isPresent();
     }
 
     public void validateGenres(Collection<Genre> genres) {
@@ -52,4 +58,9 @@ public class GenreService {
             }
         }
     }
-}
\ No newline at end of file
+
+    // Версия справочника для ETag
+    public String getVersionTag() {
+        return referenceData.versionTag();
+    }
+}
@@ -0,0 +1,223 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.repository.LikeRepository;
+import ru.yandex.practicum.filmorate.repository.repository.UserRepository;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.TrendingLikeCounter;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Массовый импорт истории лайков из NDJSON или CSV.
+ * Вход читается построчно, id проверяются по битовым наборам в памяти,
+ * запись идёт пачками по batch-size строк, каждая пачка — отдельная транзакция.
+ * Память не зависит от размера входа: хранится только текущая пачка и несколько примеров ошибок.
+ */
+@Service
+@Slf4j
+public class LikeImportService {
+
+    private static final int MAX_REJECTED_SAMPLES = 20;
+
+    private final FilmRepository filmRepository;
+    private final UserRepository userRepository;
+    private final LikeRepository likeRepository;
+    private final FilmPopularityIndex popularityIndex;
+    private final TrendingLikeCounter trendingCounter;
+    private final FilmSuggestIndex suggestIndex;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public LikeImportService(FilmRepository filmRepository,
+                             UserRepository userRepository,
+                             LikeRepository likeRepository,
+                             FilmPopularityIndex popularityIndex,
+                             TrendingLikeCounter trendingCounter,
+                             FilmSuggestIndex suggestIndex,
+                             ObjectMapper objectMapper,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${filmorate.likes.import.batch-size:10000}") int batchSize) {
+        this.filmRepository = filmRepository;
+        this.userRepository = userRepository;
+        this.likeRepository = likeRepository;
+        this.popularityIndex = popularityIndex;
+        this.trendingCounter = trendingCounter;
+        this.suggestIndex = suggestIndex;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+    }
+
+    public ImportReport importLikes(InputStream input, Format format) throws IOException {
+        log.info("Импорт лайков в формате {}", format);
+        long start = System.nanoTime();
+
+        BitSet filmIds = filmRepository.findAllIds();
+        BitSet userIds = userRepository.findAllIds();
+
+        Counters counters = new Counters();
+        List<LikeRepository.NewLike> batch = new ArrayList<>(batchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || (format == Format.CSV && lineNumber == 1 && isCsvHeader(line))) {
+                continue;
+            }
+            counters.total++;
+
+            LikeRepository.NewLike like;
+            try {
+                like = format == Format.CSV ? parseCsv(line) : parseNdjson(line);
+            } catch (IllegalArgumentException e) {
+                counters.reject(lineNumber, e.getMessage());
+                continue;
+            }
+            if (!filmIds.get(like.filmId())) {
+                counters.reject(lineNumber, "фильм с id " + like.filmId() + " не найден");
+                continue;
+            }
+            if (!userIds.get(like.userId())) {
+                counters.reject(lineNumber, "пользователь с id " + like.userId() + " не найден");
+                continue;
+            }
+
+            batch.add(like);
+            if (batch.size() >= batchSize) {
+                writeBatch(batch, counters);
+            }
+        }
+        writeBatch(batch, counters);
+
+        // Импорт меняет счётчики массово, дешевле перестроить индексы один раз в конце
+        if (counters.imported > 0) {
+            popularityIndex.rebuild();
+            trendingCounter.rebuild();
+            suggestIndex.rebuild();
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        ImportReport report = new ImportReport(
+                counters.total,
+                counters.imported,
+                counters.accepted - counters.imported,
+                counters.rejected,
+                elapsedMs,
+                counters.total * 1000 / elapsedMs,
+                counters.rejectedSamples
+        );
+        log.info("Импорт лайков завершён: {}", report);
+        return report;
+    }
+
+    private void writeBatch(List<LikeRepository.NewLike> batch, Counters counters) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Integer inserted = transactionTemplate.execute(status -> likeRepository.insertBatch(batch));
+        counters.accepted += batch.size();
+        counters.imported += inserted == null ? 0 : inserted;
+        log.debug("Импортирована пачка лайков: {} строк, всего обработано {}", batch.size(), counters.total);
+        batch.clear();
+    }
+
+    private LikeRepository.NewLike parseNdjson(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("некорректный JSON");
+        }
+        if (node == null || !node.path("filmId").canConvertToInt() || !node.path("userId").canConvertToInt()) {
+            throw new IllegalArgumentException("ожидаются целочисленные поля filmId и userId");
+        }
+        String createdAt = node.hasNonNull("createdAt") ? node.get("createdAt").asText() : null;
+        return newLike(node.get("filmId").asInt(), node.get("userId").asInt(), createdAt);
+    }
+
+    // filmId,userId[,createdAt]
+    private LikeRepository.NewLike parseCsv(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 2 || fields.length > 3) {
+            throw new IllegalArgumentException("ожидается filmId,userId[,createdAt]");
+        }
+        try {
+            return newLike(
+                    Integer.parseInt(fields[0].trim()),
+                    Integer.parseInt(fields[1].trim()),
+                    fields.length == 3 && !fields[2].isBlank() ? fields[2].trim() : null
+            );
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("filmId и userId должны быть целыми числами");
+        }
+    }
+
+    private LikeRepository.NewLike newLike(int filmId, int userId, String createdAt) {
+        if (filmId <= 0 || userId <= 0) {
+            throw new IllegalArgumentException("id должны быть положительными");
+        }
+        try {
+            Instant at = createdAt == null ? Instant.now() : Instant.parse(createdAt);
+            return new LikeRepository.NewLike(filmId, userId, at);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("createdAt должен быть в формате ISO-8601, например 2024-01-01T00:00:00Z");
+        }
+    }
+
+    private static boolean isCsvHeader(String line) {
+        String first = line.trim();
+        return !first.isEmpty() && !Character.isDigit(first.charAt(0));
+    }
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    public record ImportReport(
+            long totalRows,
+            long imported,
+            long duplicates,
+            long rejected,
+            long elapsedMs,
+            long rowsPerSecond,
+            List<String> rejectedSamples
+    ) {
+    }
+
+    private static class Counters {
+        private long total;
+        private long accepted;
+        private long imported;
+        private long rejected;
+        private final List<String> rejectedSamples = new ArrayList<>();
+
+        void reject(long lineNumber, String reason) {
+            rejected++;
+            if (rejectedSamples.size() < MAX_REJECTED_SAMPLES) {
+                rejectedSamples.add("строка " + lineNumber + ": " + reason);
+            }
+        }
+    }
+}
@@ -5,21 +5,21 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.film.MpaRating;
-import ru.yandex.practicum.filmorate.repository.repository.MpaRatingRepository;
-
+import ru.yandex.practicum.filmorate.storage.referenceStorage.ReferenceDataRegistry;
 
 import java.util.Collection;
+import java.util.Optional;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class MpaService {
 
-    private final MpaRatingRepository mpaRatingRepository;
+    private final ReferenceDataRegistry referenceData;
 
     public Collection<MpaRating> getAllMpa() {
         log.info("Получение всех рейтингов MPA");
-        Collection<MpaRating> ratings = mpaRatingRepository.findAll();
+        Collection<MpaRating> ratings = referenceData.getMpaRatings();
         log.debug("Найдено рейтингов MPA: {}", ratings.size());
         return ratings;
     }
@@ -27,13 +27,26 @@ public class MpaService {
     public MpaRating getMpaById(Integer id) {
         log.info("Получение рейтинга MPA с id={}", id);
 
-        if (!mpaRatingRepository.existsById(id)) {
-            log.warn("Рейтинг MPA с id={} не найден", id);
-            throw new EntityNotFoundException("Рейтинг MPA с id " + id + " не найден");
-        }
-
-        MpaRating rating = mpaRatingRepository.findById(id);
+        MpaRating rating = referenceData.findMpa(id)
+                .orElseThrow(() -> {
+                    log.warn("Рейтинг MPA с id={} не найден", id);
+                    return new EntityNotFoundException("Рейтинг MPA с id " + id + " не найден");
+                });
         log.debug("Найден рейтинг MPA: {}", rating.getName());
         return rating;
     }
-}
\ No newline at end of file
+
+    // Поиск без логирования: для проверки больших пачек
+    public Optional<MpaRating> findById(Integer id) {
+        return referenceData.findMpa(id);
+    }
+
+    public boolean existsById(Integer id) {
+        return referenceData.findMpa(id).isPresent();
+    }
+
+    // Версия справочника для ETag
+    public String getVersionTag() {
+        return referenceData.versionTag();
+    }
+}
@@ -2,13 +2,18 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.user.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.repository.repository.FriendRepository;
 import ru.yandex.practicum.filmorate.repository.repository.UserRepository;
+import ru.yandex.practicum.filmorate.storage.searchStorage.PrefixIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.UserSuggestIndex;
 
 import java.util.Collection;
 import java.util.List;
@@ -20,12 +25,14 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final FriendRepository friendRepository;
+    private final UserSuggestIndex suggestIndex;
 
     @Transactional
     public User create(User user) {
         log.info("Попытка создать пользователя: {}", user.getLogin());
         setNameByLoginIfEmpty(user);
         User created = userRepository.create(user);
+        AfterCommit.run(() -> suggestIndex.onUserSaved(created));
         log.debug("Пользователь создан с ID={}", created.getId());
         return created;
     }
@@ -34,11 +41,17 @@ public class UserService {
     public User update(User user) {
         log.info("Обновление пользователя с ID={}", user.getId());
 
-        userRepository.findById(user.getId())
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с id " + user.getId() + " не найден"));
-
         setNameByLoginIfEmpty(user);
-        User updated = userRepository.update(user);
+        // Без предварительного чтения: существование и версию проверяет сам UPDATE
+        Long expectedVersion = user.getVersion();
+        User updated = userRepository.update(user).orElseThrow(() -> {
+            if (expectedVersion != null && userRepository.existsById(user.getId())) {
+                return new IllegalStateException("Пользователь с id " + user.getId() + " уже изменён: версия "
+                        + expectedVersion + " устарела, перечитайте пользователя и повторите");
+            }
+            return new EntityNotFoundException("Пользователь с id " + user.getId() + " не найден");
+        });
+        AfterCommit.run(() -> suggestIndex.onUserSaved(updated));
         log.debug("Пользователь с ID {} обновлен", user.getId());
         return updated;
     }
@@ -48,6 +61,27 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    // Несколько пользователей по списку id одним запросом
+    public MultiGetResult<User> getUsersByIds(List<Integer> ids, int maxIds) {
+        log.info("Получение пользователей по списку из {} id", ids == null ? 0 : ids.size());
+        List<Integer> requested = MultiGetResult.distinctIds(ids, maxIds);
+        return MultiGetResult.of(requested, userRepository.findByIds(requested), User::getId);
+    }
+
+    // Страница пользователей после id after; курсор следующей страницы — id последнего пользователя
+    public Page<User> getUsersPage(int after, int limit) {
+        log.info("Получение страницы пользователей после ID {}, размер {}", after, limit);
+        Page.validateLimit(limit);
+        return Page.of(userRepository.findPage(after, limit + 1), limit, User::getId);
+    }
+
+    // Подсказки по началу логина, пользователи с большим числом подписчиков первыми
+    public List<PrefixIndex.Entry> suggestUsers(String prefix, int limit) {
+        log.info("Подсказки по логинам для '{}', размер {}", prefix, limit);
+        PrefixIndex.validateQuery(prefix, limit);
+        return suggestIndex.suggest(prefix, limit);
+    }
+
     public User getUserById(Integer id) {
         log.info("Получение пользователя с ID {}", id);
         return userRepository.findById(id)
@@ -67,6 +101,7 @@ public class UserService {
         if (!deleted) {
             throw new EntityNotFoundException("Не удалось удалить пользователя с id " + id);
         }
+        AfterCommit.run(() -> suggestIndex.onUserDeleted(id));
 
         log.info("Пользователь с ID={} удален", id);
     }
@@ -75,18 +110,32 @@ public class UserService {
     public void addFriend(Integer userId, Integer friendId) {
         log.info("Пользователь {} добавляет в друзья пользователя {}", userId, friendId);
 
-        userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с id " + userId + " не найден"));
-        userRepository.findById(friendId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с id " + friendId + " не найден"));
+        if (userId.equals(friendId)) {
+            throw new IllegalArgumentException("Нельзя добавить в друзья самого себя");
+        }
+        requireUser(userId);
+        requireUser(friendId);
 
-        if (friendRepository.exists(userId, friendId)) {
+        // Добавление дружбы со статусом CONFIRMED
+        boolean added;
+        try {
+            added = friendRepository.add(userId, friendId, FriendshipStatus.CONFIRMED);
+        } catch (DataIntegrityViolationException e) {
+            if (!ForeignKeys.isViolation(e)) {
+                throw e;
+            }
+            // Пользователь удалён после проверки: сработал внешний ключ friends
+            throw new EntityNotFoundException("Пользователь с id " + userId + " или " + friendId + " не найден");
+        }
+        if (!added) {
+            if (!friendRepository.exists(userId, friendId)) {
+                // Один из пользователей удалён после проверки, и связь не записана
+                throw new EntityNotFoundException("Пользователь с id " + userId + " или " + friendId + " не найден");
+            }
             log.warn("Попытка повторно добавить в друзья: userId={}, friendId={}", userId, friendId);
             throw new IllegalArgumentException("Пользователи уже друзья");
         }
-
-        // Добавление дружбы со статусом CONFIRMED
-        friendRepository.add(userId, friendId, FriendshipStatus.CONFIRMED);
+        AfterCommit.run(() -> suggestIndex.onFollowerAdded(friendId));
 
         log.info("Пользователь {} добавил в друзья пользователя {}", userId, friendId);
     }
@@ -95,20 +144,19 @@ public class UserService {
     public void removeFriend(Integer userId, Integer friendId) {
         log.info("Пользователь {} удаляет из друзей пользователя {}", userId, friendId);
 
-        userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с id " + userId + " не найден"));
-        userRepository.findById(friendId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с id " + friendId + " не найден"));
+        requireUser(userId);
+        requireUser(friendId);
 
-        friendRepository.remove(userId, friendId);
+        if (friendRepository.remove(userId, friendId)) {
+            AfterCommit.run(() -> suggestIndex.onFollowerRemoved(friendId));
+        }
         log.info("Пользователь {} удалил из друзей пользователя {}", userId, friendId);
     }
 
     public Collection<User> getFriendsById(Integer id) {
         log.info("Получение друзей пользователя с ID {}", id);
 
-        userRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с id " + id + " не найден"));
+        requireUser(id);
 
         List<User> friends = friendRepository.findFriends(id);
         log.debug("У пользователя {} найдено {} друзей", id, friends.size());
@@ -118,10 +166,8 @@ public class UserService {
     public Collection<User> getCommonFriends(Integer userId, Integer anotherId) {
         log.info("Получение общих друзей для пользователей {} и {}", userId, anotherId);
 
-        userRepository.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с id " + userId + " не найден"));
-        userRepository.findById(anotherId)
-                .orElseThrow(() -> new EntityNotFoundException("Пользователь с id " + anotherId + " не найден"));
+        requireUser(userId);
+        requireUser(anotherId);
 
         List<User> commonFriends = friendRepository.getCommonFriends(userId, anotherId);
 
@@ -130,6 +176,13 @@ public class UserService {
         return commonFriends;
     }
 
+    // Проверка по множеству id в репозитории, без загрузки пользователя
+    private void requireUser(int id) {
+        if (!userRepository.existsById(id)) {
+            throw new EntityNotFoundException("Пользователь с id " + id + " не найден");
+        }
+    }
+
     private void setNameByLoginIfEmpty(User user) {
         if (user.getName() == null || user.getName().isBlank()) {
             user.setName(user.getLogin());
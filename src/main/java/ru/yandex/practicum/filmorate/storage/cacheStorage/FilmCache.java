@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.storage.cacheStorage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.MpaRating;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный LRU-кэш собранных фильмов (фильм + MPA + жанры) для FilmRepository.findById.
+ * Film изменяемый, поэтому кэш хранит и отдаёт только копии: вызывающий код не может испортить запись.
+ * Инвалидация точечная, по id: сразу и повторно после завершения транзакции,
+ * а загрузка, начатая до инвалидации, свой результат в кэш не кладёт.
+ */
+@Component
+@Slf4j
+public class FilmCache {
+
+    private final int maxSize;
+    private final Map<Integer, Film> films;
+    // Растёт при каждой инвалидации; по нему отбрасываются результаты устаревших загрузок
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public FilmCache(@Value("${filmorate.films.cache.max-size:10000}") int maxSize) {
+        this.maxSize = maxSize;
+        this.films = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Film> eldest) {
+                if (size() > FilmCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public Optional<Film> get(int id) {
+        Film film;
+        synchronized (films) {
+            film = films.get(id);
+        }
+        if (film == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(copyOf(film));
+    }
+
+    // Версия закэшированного фильма без копирования записи и без учёта в статистике
+    public Optional<Long> getVersion(int id) {
+        synchronized (films) {
+            Film film = films.get(id);
+            return film == null ? Optional.empty() : Optional.ofNullable(film.getVersion());
+        }
+    }
+
+    // id жанров закэшированного фильма, только если в кэше лежит именно эта версия;
+    // без копирования записи и без учёта в статистике
+    public Optional<Set<Integer>> getGenreIds(int id, long version) {
+        synchronized (films) {
+            Film film = films.get(id);
+            if (film == null || film.getVersion() == null || film.getVersion() != version) {
+                return Optional.empty();
+            }
+            Set<Integer> ids = new LinkedHashSet<>();
+            for (Genre genre : film.getGenres()) {
+                ids.add(genre.getId());
+            }
+            return Optional.of(ids);
+        }
+    }
+
+    // Отметка перед загрузкой из БД; передаётся в put
+    public long loadStamp() {
+        return invalidations.get();
+    }
+
+    public void put(Film film, long loadStamp) {
+        if (maxSize <= 0 || film.getId() == null) {
+            return;
+        }
+        Film copy = copyOf(film);
+        synchronized (films) {
+            // Пока фильм грузился, что-то инвалидировали — загруженные данные могли устареть
+            if (invalidations.get() == loadStamp) {
+                films.put(copy.getId(), copy);
+            }
+        }
+    }
+
+    public void invalidate(int id) {
+        evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // До фиксации другие потоки ещё читают старую версию и могут вернуть её в кэш
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(id);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        synchronized (films) {
+            invalidations.incrementAndGet();
+            films.clear();
+        }
+        log.info("Кэш фильмов очищен");
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (films) {
+            size = films.size();
+        }
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        return new Stats(size, maxSize, hitCount, missCount, evictions.sum(),
+                total == 0 ? 0.0 : (double) hitCount / total);
+    }
+
+    private void evict(int id) {
+        synchronized (films) {
+            invalidations.incrementAndGet();
+            films.remove(id);
+        }
+    }
+
+    // Глубокая копия: жанры и MPA тоже изменяемые
+    static Film copyOf(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        copy.setVersion(film.getVersion());
+        Set<Genre> genres = new LinkedHashSet<>();
+        for (Genre genre : film.getGenres()) {
+            genres.add(new Genre(genre.getId(), genre.getName()));
+        }
+        copy.setGenres(genres);
+        MpaRating mpa = film.getMpa();
+        if (mpa != null) {
+            copy.setMpa(new MpaRating(mpa.getId(), mpa.getName(), mpa.getDescription()));
+        }
+        return copy;
+    }
+
+    public record Stats(int size, int maxSize, long hits, long misses, long evictions, double hitRate) {
+    }
+}
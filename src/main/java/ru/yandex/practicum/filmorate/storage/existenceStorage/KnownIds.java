@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.storage.existenceStorage;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.storage.bitmap.CompressedIntSet;
+
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Множество существующих id одной таблицы для быстрой проверки существования без запроса к БД.
+ * Загружается целиком при первом обращении. Промах перепроверяется точечным запросом probe
+ * (строку могли создать в обход этого экземпляра), найденный id запоминается.
+ * Новые id добавляются после фиксации транзакции, удалённые убираются сразу и ещё раз после неё.
+ * Устаревшее «есть» возможно только в окне между удалением и проверкой — такие записи отсекают
+ * внешние ключи БД.
+ */
+public class KnownIds {
+
+    private final Supplier<BitSet> loader;
+    private final IntPredicate probe;
+
+    private volatile CompressedIntSet ids;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public KnownIds(Supplier<BitSet> loader, IntPredicate probe) {
+        this.loader = loader;
+        this.probe = probe;
+    }
+
+    public boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            if (ids != null && ids.contains(id)) {
+                return true;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (ids == null) {
+            load();
+            lock.readLock().lock();
+            try {
+                if (ids.contains(id)) {
+                    return true;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        if (!probe.test(id)) {
+            return false;
+        }
+        add(id);
+        return true;
+    }
+
+    public void onCreated(int id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // До фиксации строку видит только своя транзакция
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(id);
+                }
+            });
+        } else {
+            add(id);
+        }
+    }
+
+    public void onDeleted(int id) {
+        remove(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Пока удаление не зафиксировано, промах перепроверяется в БД и может вернуть id обратно
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        remove(id);
+                    }
+                }
+            });
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids == null ? 0 : ids.cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void load() {
+        lock.writeLock().lock();
+        try {
+            if (ids != null) {
+                return;
+            }
+            CompressedIntSet loaded = new CompressedIntSet();
+            BitSet bits = loader.get();
+            for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+                loaded.add(id);
+            }
+            ids = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(int id) {
+        lock.writeLock().lock();
+        try {
+            // До загрузки запоминать нечего: id придёт вместе со всей таблицей
+            if (ids != null) {
+                ids.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (ids != null) {
+                ids.remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package ru.yandex.practicum.filmorate.storage.facetStorage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.storage.bitmap.CompressedIntSet;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Битовые индексы фильмов для фасетного отбора: по жанру, рейтингу MPA, году выпуска и продолжительности.
+ * Для каждого значения хранится CompressedIntSet с id фильмов. Внутри фасета значения объединяются (OR),
+ * фасеты между собой пересекаются (AND). Счётчик значения фасета считается по остальным фильтрам,
+ * без фильтра самого фасета, — так интерфейс показывает, сколько фильмов даст выбор ещё одного значения.
+ * Годы сводятся в десятилетия, продолжительность — в корзины DURATION_BUCKETS.
+ * Заполняется из БД при старте и поддерживается FilmService при изменении фильмов.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmFacetIndex {
+
+    // Нижние границы корзин продолжительности в минутах
+    private static final int[] DURATION_BUCKETS = {0, 60, 90, 120, 150, 180};
+
+    private final FilmRepository filmRepository;
+
+    private CompressedIntSet all = new CompressedIntSet();
+    private final Map<Integer, CompressedIntSet> byGenre = new HashMap<>();
+    private final Map<Integer, CompressedIntSet> byMpa = new HashMap<>();
+    private final NavigableMap<Integer, CompressedIntSet> byYear = new TreeMap<>();
+    private final NavigableMap<Integer, CompressedIntSet> byDuration = new TreeMap<>();
+    // Под какими значениями записан фильм: нужно, чтобы снять его при изменении
+    private final Map<Integer, FilmKeys> keysByFilm = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            all = new CompressedIntSet();
+            byGenre.clear();
+            byMpa.clear();
+            byYear.clear();
+            byDuration.clear();
+            keysByFilm.clear();
+            filmRepository.forEachFilm(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Фасетный индекс построен: {} фильмов, {} жанров, {} лет за {} мс",
+                keysByFilm.size(), byGenre.size(), byYear.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void onFilmSaved(Film film) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(film.getId());
+            put(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onFilmDeleted(int filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Отобрать фильмы по фильтру.
+     * ids — до limit id по возрастанию, строго больше after; total и facets — по всей выборке.
+     */
+    public Selection select(Filter filter, int after, int limit) {
+        lock.readLock().lock();
+        try {
+            CompressedIntSet genres = union(byGenre, filter.genreIds());
+            CompressedIntSet mpa = union(byMpa, filter.mpaIds());
+            CompressedIntSet years = range(byYear, filter.yearFrom(), filter.yearTo());
+            CompressedIntSet durations = range(byDuration, filter.durationMin(), filter.durationMax());
+
+            CompressedIntSet matched = intersect(genres, mpa, years, durations);
+            List<Integer> ids = new ArrayList<>();
+            for (int id : matched.valuesAfter(after, limit)) {
+                ids.add(id);
+            }
+
+            Facets facets = new Facets(
+                    count(byGenre, intersect(mpa, years, durations), id -> id),
+                    count(byMpa, intersect(genres, years, durations), id -> id),
+                    count(byYear, intersect(genres, mpa, durations), year -> year / 10 * 10),
+                    count(byDuration, intersect(genres, mpa, years), FilmFacetIndex::durationBucket)
+            );
+            return new Selection(matched.cardinality(), ids, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Film film) {
+        int filmId = film.getId();
+        int[] genreIds = film.getGenres().stream()
+                .map(Genre::getId)
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .distinct()
+                .toArray();
+        Integer mpaId = film.getMpa() == null ? null : film.getMpa().getId();
+        Integer year = film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+        FilmKeys keys = new FilmKeys(genreIds, mpaId, year, film.getDuration());
+
+        all.add(filmId);
+        for (int genreId : genreIds) {
+            byGenre.computeIfAbsent(genreId, id -> new CompressedIntSet()).add(filmId);
+        }
+        if (mpaId != null) {
+            byMpa.computeIfAbsent(mpaId, id -> new CompressedIntSet()).add(filmId);
+        }
+        if (year != null) {
+            byYear.computeIfAbsent(year, y -> new CompressedIntSet()).add(filmId);
+        }
+        byDuration.computeIfAbsent(keys.duration(), d -> new CompressedIntSet()).add(filmId);
+        keysByFilm.put(filmId, keys);
+    }
+
+    private void removeFilm(int filmId) {
+        FilmKeys old = keysByFilm.remove(filmId);
+        if (old == null) {
+            return;
+        }
+        all.remove(filmId);
+        for (int genreId : old.genreIds()) {
+            removeFrom(byGenre, genreId, filmId);
+        }
+        if (old.mpaId() != null) {
+            removeFrom(byMpa, old.mpaId(), filmId);
+        }
+        if (old.year() != null) {
+            removeFrom(byYear, old.year(), filmId);
+        }
+        removeFrom(byDuration, old.duration(), filmId);
+    }
+
+    private static void removeFrom(Map<Integer, CompressedIntSet> index, Integer key, int filmId) {
+        CompressedIntSet ids = index.get(key);
+        if (ids != null && ids.remove(filmId) && ids.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // null — фасет не задан; неизвестное значение даёт пустое множество
+    private static CompressedIntSet union(Map<Integer, CompressedIntSet> index, Set<Integer> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        CompressedIntSet result = new CompressedIntSet();
+        for (Integer value : values) {
+            CompressedIntSet ids = index.get(value);
+            if (ids != null) {
+                result = result.or(ids);
+            }
+        }
+        return result;
+    }
+
+    private static CompressedIntSet range(NavigableMap<Integer, CompressedIntSet> index, Integer from, Integer to) {
+        if (from == null && to == null) {
+            return null;
+        }
+        NavigableMap<Integer, CompressedIntSet> values = index.subMap(
+                from == null ? Integer.MIN_VALUE : from, true,
+                to == null ? Integer.MAX_VALUE : to, true);
+        CompressedIntSet result = new CompressedIntSet();
+        for (CompressedIntSet ids : values.values()) {
+            result = result.or(ids);
+        }
+        return result;
+    }
+
+    // Пересечение заданных фасетов; без фасетов — все фильмы (только для чтения)
+    private CompressedIntSet intersect(CompressedIntSet... sets) {
+        CompressedIntSet result = null;
+        for (CompressedIntSet set : sets) {
+            if (set != null) {
+                result = result == null ? set : result.and(set);
+            }
+        }
+        return result == null ? all : result;
+    }
+
+    // Счётчики по значениям индекса, сведённым в группы функцией group (например, год -> десятилетие)
+    private static Map<Integer, Integer> count(Map<Integer, CompressedIntSet> index, CompressedIntSet base,
+                                               IntUnaryOperator group) {
+        Map<Integer, Integer> counts = new TreeMap<>();
+        index.forEach((value, ids) -> counts.merge(group.applyAsInt(value), base.andCardinality(ids), Integer::sum));
+        return counts;
+    }
+
+    private static int durationBucket(int duration) {
+        int bucket = DURATION_BUCKETS[0];
+        for (int bound : DURATION_BUCKETS) {
+            if (duration >= bound) {
+                bucket = bound;
+            }
+        }
+        return bucket;
+    }
+
+    private record FilmKeys(int[] genreIds, Integer mpaId, Integer year, int duration) {
+    }
+
+    // Пустые или null поля означают, что фасет не задан; границы диапазонов включительные
+    public record Filter(Set<Integer> genreIds, Set<Integer> mpaIds,
+                         Integer yearFrom, Integer yearTo,
+                         Integer durationMin, Integer durationMax) {
+    }
+
+    public record Selection(int total, List<Integer> ids, Facets facets) {
+    }
+
+    // Ключи: id жанра, id рейтинга MPA, первый год десятилетия, нижняя граница корзины продолжительности
+    public record Facets(Map<Integer, Integer> genres, Map<Integer, Integer> mpa,
+                         Map<Integer, Integer> decades, Map<Integer, Integer> durations) {
+    }
+}
@@ -0,0 +1,240 @@
+package ru.yandex.practicum.filmorate.storage.popularityStorage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.repository.LikeRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory рейтинг популярности фильмов.
+ * Кроме общего рейтинга ведёт отдельные рейтинги по каждому жанру и году выпуска,
+ * поэтому топ с фильтром стоит столько же, сколько общий.
+ * Заполняется из БД при старте и поддерживается FilmService при лайках и изменении фильмов.
+ * Изменения сериализуются монитором индекса, чтения топа идут параллельно.
+ * Все рейтинги лежат в одном State: перестроение собирает новый State в стороне
+ * и публикует его одной записью volatile-поля, поэтому чтения не видят пустых или частичных рейтингов.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmPopularityIndex {
+
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+
+    private final LikeRepository likeRepository;
+    private final FilmRepository filmRepository;
+    private final GenreRepository genreRepository;
+
+    private volatile State state = new State();
+    // Метка запуска и счётчик изменений: вместе дают ETag топа, не повторяющийся после рестарта
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Перестроить рейтинги из БД. Монитор держится и на время чтения из БД: лайки, зафиксированные
+     * во время перестроения, ждут его окончания и применяются уже к новому State, а не теряются
+     * вместе со старым. Чтения до публикации обслуживает прежний State.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        Map<Integer, Integer> counts = likeRepository.countLikesByFilm();
+        Map<Integer, Integer> years = filmRepository.findReleaseYears();
+        Map<Integer, Set<Integer>> genres = genreRepository.findGenreIdsByFilm();
+
+        State fresh = new State();
+        fresh.global.replaceAll(counts);
+        counts.forEach((filmId, score) -> {
+            FilmKeys keys = new FilmKeys(genres.getOrDefault(filmId, Set.of()), years.get(filmId));
+            fresh.keysByFilm.put(filmId, keys);
+            putSecondary(fresh, filmId, keys, score);
+        });
+        state = fresh;
+
+        version.incrementAndGet();
+        log.info("Рейтинг популярности перестроен: {} фильмов, {} жанров, {} лет",
+                counts.size(), fresh.byGenre.size(), fresh.byYear.size());
+    }
+
+    // Сравнить общий рейтинг с таблицей likes без изменения индекса
+    public VerificationReport verify() {
+        Map<Integer, Integer> expected = likeRepository.countLikesByFilm();
+        Map<Integer, Integer> actual = state.global.snapshot();
+
+        Set<Integer> filmIds = new TreeSet<>(expected.keySet());
+        filmIds.addAll(actual.keySet());
+
+        List<Mismatch> mismatches = new ArrayList<>();
+        int mismatchCount = 0;
+        for (Integer filmId : filmIds) {
+            Integer db = expected.get(filmId);
+            Integer index = actual.get(filmId);
+            if (!Objects.equals(db, index)) {
+                mismatchCount++;
+                if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                    mismatches.add(new Mismatch(filmId, db, index));
+                }
+            }
+        }
+
+        if (mismatchCount > 0) {
+            log.warn("Рейтинг популярности расходится с БД: {} фильмов", mismatchCount);
+        }
+        return new VerificationReport(filmIds.size(), mismatchCount, mismatches);
+    }
+
+    /**
+     * Топ фильмов по лайкам; genreId и year необязательны.
+     * При обоих фильтрах обходится рейтинг жанра с отбором по году.
+     */
+    public List<Integer> topFilmIds(int limit, Integer genreId, Integer year) {
+        State current = state;
+        if (genreId == null && year == null) {
+            return current.global.top(limit);
+        }
+        if (genreId == null) {
+            return topOf(current.byYear.get(year), limit);
+        }
+        Leaderboard genre = current.byGenre.get(genreId);
+        if (year == null) {
+            return topOf(genre, limit);
+        }
+        if (genre == null) {
+            return List.of();
+        }
+        return genre.top(limit, filmId -> {
+            FilmKeys keys = current.keysByFilm.get(filmId);
+            return keys != null && year.equals(keys.year());
+        });
+    }
+
+    // Фильм создан или изменён: переложить его по рейтингам жанров и года
+    public synchronized void onFilmSaved(Film film) {
+        int filmId = film.getId();
+        Set<Integer> genreIds = film.getGenres().stream()
+                .map(Genre::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Integer year = film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+        FilmKeys keys = new FilmKeys(genreIds, year);
+        State current = state;
+
+        OptionalInt score = current.global.score(filmId);
+        if (score.isEmpty()) {
+            current.global.put(filmId, 0);
+        }
+
+        FilmKeys old = current.keysByFilm.put(filmId, keys);
+        if (old != null) {
+            removeSecondary(current, filmId, old);
+        }
+        putSecondary(current, filmId, keys, score.orElse(0));
+        version.incrementAndGet();
+    }
+
+    public synchronized void onFilmDeleted(int filmId) {
+        State current = state;
+        current.global.remove(filmId);
+        FilmKeys old = current.keysByFilm.remove(filmId);
+        if (old != null) {
+            removeSecondary(current, filmId, old);
+        }
+        version.incrementAndGet();
+    }
+
+    public synchronized void onLikeAdded(int filmId) {
+        changeScore(filmId, 1);
+    }
+
+    public synchronized void onLikeRemoved(int filmId) {
+        changeScore(filmId, -1);
+    }
+
+    // Число лайков фильма по индексу; 0 для неизвестного фильма
+    public int likesOf(int filmId) {
+        return state.global.score(filmId).orElse(0);
+    }
+
+    // Версия содержимого рейтинга: меняется при любом изменении счёта или данных фильма
+    public String versionTag() {
+        return epoch + "." + version.get();
+    }
+
+    private void changeScore(int filmId, int delta) {
+        State current = state;
+        version.incrementAndGet();
+        current.global.increment(filmId, delta);
+        FilmKeys keys = current.keysByFilm.get(filmId);
+        if (keys == null) {
+            return;
+        }
+        for (Integer genreId : keys.genreIds()) {
+            current.byGenre.get(genreId).increment(filmId, delta);
+        }
+        if (keys.year() != null) {
+            current.byYear.get(keys.year()).increment(filmId, delta);
+        }
+    }
+
+    private static void putSecondary(State state, int filmId, FilmKeys keys, int score) {
+        for (Integer genreId : keys.genreIds()) {
+            state.byGenre.computeIfAbsent(genreId, id -> new Leaderboard()).put(filmId, score);
+        }
+        if (keys.year() != null) {
+            state.byYear.computeIfAbsent(keys.year(), y -> new Leaderboard()).put(filmId, score);
+        }
+    }
+
+    private static void removeSecondary(State state, int filmId, FilmKeys keys) {
+        for (Integer genreId : keys.genreIds()) {
+            removeFrom(state.byGenre, genreId, filmId);
+        }
+        if (keys.year() != null) {
+            removeFrom(state.byYear, keys.year(), filmId);
+        }
+    }
+
+    private static void removeFrom(Map<Integer, Leaderboard> leaderboards, Integer key, int filmId) {
+        Leaderboard leaderboard = leaderboards.get(key);
+        if (leaderboard == null) {
+            return;
+        }
+        leaderboard.remove(filmId);
+        if (leaderboard.size() == 0) {
+            leaderboards.remove(key);
+        }
+    }
+
+    private static List<Integer> topOf(Leaderboard leaderboard, int limit) {
+        return leaderboard == null ? List.of() : leaderboard.top(limit);
+    }
+
+    private record FilmKeys(Set<Integer> genreIds, Integer year) {
+    }
+
+    // Общий и вторичные рейтинги; заменяется целиком при перестроении
+    private static final class State {
+        private final Leaderboard global = new Leaderboard();
+        private final ConcurrentMap<Integer, Leaderboard> byGenre = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, Leaderboard> byYear = new ConcurrentHashMap<>();
+        // По каким вторичным рейтингам разложен фильм
+        private final ConcurrentMap<Integer, FilmKeys> keysByFilm = new ConcurrentHashMap<>();
+    }
+
+    public record VerificationReport(int checked, int mismatchCount, List<Mismatch> mismatches) {
+    }
+
+    // null в dbLikes/indexLikes означает, что фильма нет в соответствующем источнике
+    public record Mismatch(int filmId, Integer dbLikes, Integer indexLikes) {
+    }
+}
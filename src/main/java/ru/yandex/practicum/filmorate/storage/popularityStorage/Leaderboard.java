@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.storage.popularityStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Упорядоченный индекс "фильм -> количество лайков".
+ * Изменение счёта — O(log n), выборка топ-N — O(N) после O(log n) поиска начала.
+ * Потокобезопасен: записи идут под write-lock, чтения топа — под read-lock.
+ */
+public class Leaderboard {
+
+    // Больше лайков — выше; при равенстве — меньший id выше
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparingInt(Entry::score).reversed()
+            .thenComparingInt(Entry::filmId);
+
+    private final Map<Integer, Integer> scores = new HashMap<>();
+    private final NavigableSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Добавить фильм с заданным счётом или заменить счёт существующего
+    public void put(int filmId, int score) {
+        lock.writeLock().lock();
+        try {
+            Integer old = scores.put(filmId, score);
+            if (old != null) {
+                ranking.remove(new Entry(filmId, old));
+            }
+            ranking.add(new Entry(filmId, score));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Изменить счёт на delta; неизвестный фильм игнорируется
+    public void increment(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Integer old = scores.get(filmId);
+            if (old == null) {
+                return;
+            }
+            int score = Math.max(0, old + delta);
+            ranking.remove(new Entry(filmId, old));
+            ranking.add(new Entry(filmId, score));
+            scores.put(filmId, score);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            Integer old = scores.remove(filmId);
+            if (old != null) {
+                ranking.remove(new Entry(filmId, old));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Полностью заменить содержимое (используется при перестроении из БД)
+    public void replaceAll(Map<Integer, Integer> newScores) {
+        lock.writeLock().lock();
+        try {
+            scores.clear();
+            ranking.clear();
+            newScores.forEach((filmId, score) -> {
+                scores.put(filmId, score);
+                ranking.add(new Entry(filmId, score));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> top(int limit) {
+        return top(limit, filmId -> true);
+    }
+
+    // Топ-N среди фильмов, удовлетворяющих фильтру (например, вторичному ключу — году)
+    public List<Integer> top(int limit, IntPredicate filter) {
+        lock.readLock().lock();
+        try {
+            List<Integer> result = new ArrayList<>(Math.min(Math.max(limit, 0), ranking.size()));
+            Iterator<Entry> it = ranking.iterator();
+            while (it.hasNext() && result.size() < limit) {
+                int filmId = it.next().filmId();
+                if (filter.test(filmId)) {
+                    result.add(filmId);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public OptionalInt score(int filmId) {
+        lock.readLock().lock();
+        try {
+            Integer score = scores.get(filmId);
+            return score == null ? OptionalInt.empty() : OptionalInt.of(score);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<Integer, Integer> snapshot() {
+        lock.readLock().lock();
+        try {
+            return new HashMap<>(scores);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return scores.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Entry(int filmId, int score) {
+    }
+}
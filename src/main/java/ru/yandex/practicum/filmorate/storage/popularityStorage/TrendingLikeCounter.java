@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.storage.popularityStorage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.repository.repository.LikeRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Скользящий счётчик лайков для трендовых фильмов.
+ * Время делится на корзины фиксированной длины; каждая корзина хранит число лайков по фильмам.
+ * Корзины старше максимального окна удаляются по расписанию, поэтому память ограничена
+ * произведением длины окна на число активных в нём фильмов.
+ * Перестроение заполняет новые корзины в стороне и публикует их одной записью volatile-поля.
+ */
+@Component
+@Slf4j
+public class TrendingLikeCounter {
+
+    private static final Pattern WINDOW_PATTERN = Pattern.compile("(\\d{1,9})([mhd])");
+
+    private final LikeRepository likeRepository;
+    private final long bucketMillis;
+    private final Duration maxWindow;
+
+    // номер корзины -> (id фильма -> количество лайков за время корзины)
+    private volatile ConcurrentNavigableMap<Long, ConcurrentMap<Integer, AtomicInteger>> buckets =
+            new ConcurrentSkipListMap<>();
+    // Изменения счётчиков идут параллельно под read-блокировкой; перестроение берёт write-блокировку,
+    // чтобы лайк не попал в старые корзины, уже заменённые новыми, и не потерялся
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    public TrendingLikeCounter(LikeRepository likeRepository,
+                               @Value("${filmorate.trending.bucket:PT1H}") Duration bucket,
+                               @Value("${filmorate.trending.max-window:P7D}") Duration maxWindow) {
+        if (bucket.isZero() || bucket.isNegative() || maxWindow.compareTo(bucket) < 0) {
+            throw new IllegalArgumentException("Некорректные параметры окна трендов: bucket="
+                    + bucket + ", maxWindow=" + maxWindow);
+        }
+        this.likeRepository = likeRepository;
+        this.bucketMillis = bucket.toMillis();
+        this.maxWindow = maxWindow;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            ConcurrentNavigableMap<Long, ConcurrentMap<Integer, AtomicInteger>> fresh = new ConcurrentSkipListMap<>();
+            Instant since = Instant.now().minus(maxWindow);
+            likeRepository.forEachLikeSince(since, (filmId, createdAt) -> add(fresh, filmId, createdAt, 1));
+            buckets = fresh;
+            log.info("Счётчик трендов заполнен: {} корзин", fresh.size());
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Разбирает длину окна вида 90m, 24h, 7d.
+     */
+    public Duration parseWindow(String window) {
+        Matcher matcher = WINDOW_PATTERN.matcher(window == null ? "" : window.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Окно должно быть в формате <число>m|h|d, например 24h");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        Duration duration = switch (matcher.group(2)) {
+            case "m" -> Duration.ofMinutes(amount);
+            case "h" -> Duration.ofHours(amount);
+            default -> Duration.ofDays(amount);
+        };
+        if (duration.isZero() || duration.compareTo(maxWindow) > 0) {
+            throw new IllegalArgumentException("Окно должно быть больше нуля и не больше " + maxWindow);
+        }
+        return duration;
+    }
+
+    // likedAt — то же время, что записано в likes.created_at, иначе удаление попадёт в другую корзину
+    public void onLikeAdded(int filmId, Instant likedAt) {
+        add(filmId, likedAt, 1);
+    }
+
+    public void onLikeRemoved(int filmId, Instant likedAt) {
+        add(filmId, likedAt, -1);
+    }
+
+    public void onFilmDeleted(int filmId) {
+        rebuildLock.readLock().lock();
+        try {
+            buckets.values().forEach(bucket -> bucket.remove(filmId));
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> top(Duration window, int limit) {
+        return top(window, limit, Instant.now());
+    }
+
+    List<Integer> top(Duration window, int limit, Instant now) {
+        long current = bucketOf(now);
+        long bucketCount = (window.toMillis() + bucketMillis - 1) / bucketMillis;
+        long first = current - bucketCount + 1;
+
+        Map<Integer, Integer> totals = new HashMap<>();
+        buckets.subMap(first, true, current, true).values()
+                .forEach(bucket -> bucket.forEach((filmId, count) ->
+                        totals.merge(filmId, count.get(), Integer::sum)));
+
+        return totals.entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedDelayString = "${filmorate.trending.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        evictExpired(Instant.now());
+    }
+
+    void evictExpired(Instant now) {
+        long oldestKept = bucketOf(now.minus(maxWindow));
+        ConcurrentNavigableMap<Long, ConcurrentMap<Integer, AtomicInteger>> current = buckets;
+        int before = current.size();
+        current.headMap(oldestKept).clear();
+        int evicted = before - current.size();
+        if (evicted > 0) {
+            log.debug("Удалено устаревших корзин трендов: {}", evicted);
+        }
+    }
+
+    int bucketCount() {
+        return buckets.size();
+    }
+
+    void add(int filmId, Instant at, int delta) {
+        rebuildLock.readLock().lock();
+        try {
+            add(buckets, filmId, at, delta);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void add(ConcurrentNavigableMap<Long, ConcurrentMap<Integer, AtomicInteger>> target,
+                     int filmId, Instant at, int delta) {
+        long bucket = bucketOf(at);
+        // Лайк из уже выброшенной корзины на тренды не влияет
+        if (bucket < bucketOf(Instant.now().minus(maxWindow))) {
+            return;
+        }
+        target.computeIfAbsent(bucket, b -> new ConcurrentHashMap<>())
+                .computeIfAbsent(filmId, id -> new AtomicInteger())
+                .addAndGet(delta);
+    }
+
+    private long bucketOf(Instant instant) {
+        return Math.floorDiv(instant.toEpochMilli(), bucketMillis);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.storage.referenceStorage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.MpaRating;
+import ru.yandex.practicum.filmorate.repository.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.repository.MpaRatingRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Справочники жанров и рейтингов MPA в памяти.
+ * Таблицы маленькие и заполняются schema.sql, поэтому читаются один раз при старте
+ * в неизменяемый снимок; все экземпляры Genre и MpaRating общие — изменять их нельзя.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ReferenceDataRegistry {
+
+    private final GenreRepository genreRepository;
+    private final MpaRatingRepository mpaRatingRepository;
+
+    // Снимок заменяется целиком, читатели видят либо старый, либо новый
+    private volatile Snapshot snapshot = new Snapshot(List.of(), Map.of(), List.of(), Map.of());
+    // Метка запуска и номер загрузки: ETag справочников, не повторяющийся после рестарта
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    @PostConstruct
+    public void reload() {
+        List<Genre> genres = List.copyOf(genreRepository.findAll());
+        List<MpaRating> ratings = List.copyOf(mpaRatingRepository.findAll());
+        snapshot = new Snapshot(
+                genres,
+                genres.stream().collect(Collectors.toUnmodifiableMap(Genre::getId, Function.identity())),
+                ratings,
+                ratings.stream().collect(Collectors.toUnmodifiableMap(MpaRating::getId, Function.identity()))
+        );
+        version.incrementAndGet();
+        log.info("Справочники загружены: {} жанров, {} рейтингов MPA", genres.size(), ratings.size());
+    }
+
+    public String versionTag() {
+        return epoch + "." + version.get();
+    }
+
+    // Все жанры по возрастанию id
+    public List<Genre> getGenres() {
+        return snapshot.genres();
+    }
+
+    public Optional<Genre> findGenre(Integer id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(snapshot.genresById().get(id));
+    }
+
+    // Все рейтинги MPA по возрастанию id
+    public List<MpaRating> getMpaRatings() {
+        return snapshot.ratings();
+    }
+
+    public Optional<MpaRating> findMpa(Integer id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(snapshot.ratingsById().get(id));
+    }
+
+    private record Snapshot(List<Genre> genres,
+                            Map<Integer, Genre> genresById,
+                            List<MpaRating> ratings,
+                            Map<Integer, MpaRating> ratingsById) {
+    }
+}
@@ -0,0 +1,214 @@
+package ru.yandex.practicum.filmorate.storage.searchStorage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.storage.bitmap.CompressedIntSet;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory полнотекстовый индекс по названиям и описаниям фильмов.
+ * Для каждого терма хранятся два сжатых набора id: фильмы с термом в названии и в описании.
+ * Запрос требует наличия всех своих термов; кандидаты берутся из самого редкого терма,
+ * остальные проверяются точечно. Релевантность — сумма idf совпавших термов с повышенным весом
+ * названия, умноженная на логарифм числа лайков из FilmPopularityIndex.
+ * Заполняется из БД при старте и поддерживается FilmService при изменении фильмов.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmSearchIndex {
+
+    private static final double NAME_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+    // Вклад популярности: фильм со 100 лайками получает примерно +230% к релевантности
+    private static final double LIKES_WEIGHT = 0.5;
+
+    private final FilmRepository filmRepository;
+    private final FilmPopularityIndex popularityIndex;
+
+    private final Map<String, Term> terms = new HashMap<>();
+    private final Map<Integer, IndexedFilm> films = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void rebuild() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            films.clear();
+            filmRepository.forEachFilm(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс построен: {} фильмов, {} термов за {} мс",
+                films.size(), terms.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void onFilmSaved(Film film) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(film.getId());
+            put(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onFilmDeleted(int filmId) {
+        lock.writeLock().lock();
+        try {
+            removeFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Лучшие limit фильмов по запросу; total — сколько фильмов содержат все термы запроса
+    public SearchResult search(String query, int limit) {
+        List<String> queryTerms = Tokenizer.tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return new SearchResult(0, List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Term> matched = new ArrayList<>(queryTerms.size());
+            for (String text : queryTerms) {
+                Term term = terms.get(text);
+                if (term == null) {
+                    return new SearchResult(0, List.of());
+                }
+                matched.add(term);
+            }
+            matched.sort(Comparator.comparingInt(Term::documentFrequency));
+
+            double filmCount = films.size();
+            double[] idf = new double[matched.size()];
+            for (int i = 0; i < idf.length; i++) {
+                idf[i] = Math.log(1 + filmCount / matched.get(i).documentFrequency());
+            }
+
+            // Минимальная куча: в вершине худший из лучших limit
+            PriorityQueue<SearchHit> best = new PriorityQueue<>(Comparator.comparingDouble(SearchHit::score));
+            int[] total = {0};
+            Term rarest = matched.get(0);
+            CompressedIntSet candidates = rarest.inName.or(rarest.inDescription);
+            candidates.forEach(filmId -> {
+                double relevance = 0;
+                for (int i = 0; i < idf.length; i++) {
+                    double weight = matched.get(i).weight(filmId);
+                    if (weight == 0) {
+                        return;
+                    }
+                    relevance += weight * idf[i];
+                }
+                total[0]++;
+                double score = relevance * (1 + LIKES_WEIGHT * Math.log1p(popularityIndex.likesOf(filmId)));
+                if (best.size() < limit) {
+                    best.add(new SearchHit(filmId, films.get(filmId).name(), score));
+                } else if (limit > 0 && score > best.peek().score()) {
+                    best.poll();
+                    best.add(new SearchHit(filmId, films.get(filmId).name(), score));
+                }
+            });
+
+            List<SearchHit> hits = new ArrayList<>(best);
+            hits.sort(Comparator.comparingDouble(SearchHit::score).reversed()
+                    .thenComparingInt(SearchHit::id));
+            return new SearchResult(total[0], hits);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return films.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Film film) {
+        int filmId = film.getId();
+        Term[] nameTerms = addPostings(Tokenizer.tokenize(film.getName()), filmId, true);
+        Term[] descriptionTerms = addPostings(Tokenizer.tokenize(film.getDescription()), filmId, false);
+        films.put(filmId, new IndexedFilm(film.getName(), nameTerms, descriptionTerms));
+    }
+
+    private Term[] addPostings(List<String> texts, int filmId, boolean name) {
+        Term[] result = new Term[texts.size()];
+        for (int i = 0; i < result.length; i++) {
+            Term term = terms.computeIfAbsent(texts.get(i), Term::new);
+            (name ? term.inName : term.inDescription).add(filmId);
+            result[i] = term;
+        }
+        return result;
+    }
+
+    private void removeFilm(int filmId) {
+        IndexedFilm old = films.remove(filmId);
+        if (old == null) {
+            return;
+        }
+        for (Term term : old.nameTerms()) {
+            term.inName.remove(filmId);
+            dropIfEmpty(term);
+        }
+        for (Term term : old.descriptionTerms()) {
+            term.inDescription.remove(filmId);
+            dropIfEmpty(term);
+        }
+    }
+
+    // Термы без фильмов удаляются, чтобы словарь не рос от правок
+    private void dropIfEmpty(Term term) {
+        if (term.isEmpty()) {
+            terms.remove(term.text);
+        }
+    }
+
+    private static final class Term {
+        private final String text;
+        private final CompressedIntSet inName = new CompressedIntSet();
+        private final CompressedIntSet inDescription = new CompressedIntSet();
+
+        Term(String text) {
+            this.text = text;
+        }
+
+        double weight(int filmId) {
+            return (inName.contains(filmId) ? NAME_WEIGHT : 0)
+                    + (inDescription.contains(filmId) ? DESCRIPTION_WEIGHT : 0);
+        }
+
+        // Оценка сверху: фильм с термом и в названии, и в описании считается дважды
+        int documentFrequency() {
+            return inName.cardinality() + inDescription.cardinality();
+        }
+
+        boolean isEmpty() {
+            return inName.isEmpty() && inDescription.isEmpty();
+        }
+    }
+
+    // Термы храним ссылками на общие объекты словаря: удаление не ищет их по строке
+    private record IndexedFilm(String name, Term[] nameTerms, Term[] descriptionTerms) {
+    }
+
+    public record SearchResult(int total, List<SearchHit> hits) {
+    }
+
+    public record SearchHit(int id, String name, double score) {
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.storage.searchStorage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+
+import java.util.List;
+
+/**
+ * Автодополнение названий фильмов; вес подсказки — число лайков.
+ * Заполняется из БД при старте и поддерживается FilmService при изменении фильмов и лайков.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class FilmSuggestIndex {
+
+    private final FilmRepository filmRepository;
+    private final PrefixIndex index = new PrefixIndex();
+
+    @PostConstruct
+    public void rebuild() {
+        index.rebuild(filmRepository.findSuggestEntries());
+        log.info("Индекс подсказок по названиям фильмов построен: {}", index.footprint());
+    }
+
+    public List<PrefixIndex.Entry> suggest(String prefix, int limit) {
+        return index.top(prefix, limit);
+    }
+
+    // Лайки при изменении фильма не меняются, поэтому вес сохраняется
+    public void onFilmSaved(Film film) {
+        index.putText(film.getId(), film.getName());
+    }
+
+    public void onFilmDeleted(int filmId) {
+        index.remove(filmId);
+    }
+
+    public void onLikeAdded(int filmId) {
+        index.adjustWeight(filmId, 1);
+    }
+
+    public void onLikeRemoved(int filmId) {
+        index.adjustWeight(filmId, -1);
+    }
+
+    public PrefixIndex.Footprint footprint() {
+        return index.footprint();
+    }
+}
@@ -0,0 +1,352 @@
+package ru.yandex.practicum.filmorate.storage.searchStorage;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Префиксный индекс для автодополнения с весами.
+ * Основная часть — отсортированные по нормализованному ключу массивы и дерево отрезков
+ * с позицией максимального веса, поэтому топ-k по префиксу стоит O(log n + k log k)
+ * независимо от того, сколько записей начинается с префикса.
+ * Изменение веса — точечное обновление дерева. Новые и переименованные записи копятся
+ * в небольшой упорядоченной дельте, удалённые помечаются весом -1; когда дельта и пометки
+ * вырастают до MAX_PENDING, основная часть пересобирается.
+ */
+public class PrefixIndex {
+
+    public static final int MAX_LIMIT = 50;
+
+    private static final int MAX_PENDING = 4096;
+    private static final int REMOVED = -1;
+    private static final Comparator<Item> ORDER = Comparator.comparing(Item::key).thenComparingInt(Item::id);
+
+    // Основная часть
+    private String[] keys = new String[0];
+    private String[] texts = new String[0];
+    private int[] ids = new int[0];
+    private int[] weights = new int[0];
+    // tree[n + i] = i; во внутренних узлах — позиция с наибольшим весом в поддереве
+    private int[] tree = new int[0];
+    private final Map<Integer, Integer> positions = new HashMap<>();
+    private int removed;
+
+    // Дельта: записи, которых ещё нет в основной части
+    private final NavigableSet<Item> pending = new TreeSet<>(ORDER);
+    private final Map<Integer, Item> pendingById = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public static void validateQuery(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("Префикс не может быть пустым");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("count должен быть от 1 до " + MAX_LIMIT);
+        }
+    }
+
+    public void rebuild(Collection<Entry> entries) {
+        List<Item> items = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            items.add(Item.of(entry));
+        }
+        lock.writeLock().lock();
+        try {
+            pending.clear();
+            pendingById.clear();
+            load(items);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Добавить запись или заменить текст и вес существующей
+    public void put(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            putItem(Item.of(entry));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Добавить запись с нулевым весом или заменить текст существующей, сохранив её вес
+    public void putText(int id, String text) {
+        lock.writeLock().lock();
+        try {
+            Integer position = positions.get(id);
+            Item old = pendingById.get(id);
+            int weight = position != null ? weights[position] : old != null ? old.weight() : 0;
+            putItem(Item.of(new Entry(id, text, weight)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            Integer position = positions.get(id);
+            if (position != null) {
+                markRemoved(position);
+            }
+            Item old = pendingById.remove(id);
+            if (old != null) {
+                pending.remove(old);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Изменить вес на delta (например, при лайке); неизвестная запись игнорируется
+    public void adjustWeight(int id, int delta) {
+        lock.writeLock().lock();
+        try {
+            Integer position = positions.get(id);
+            if (position != null) {
+                setWeight(position, Math.max(0, weights[position] + delta));
+                return;
+            }
+            Item old = pendingById.get(id);
+            if (old != null) {
+                Item updated = new Item(old.key(), old.id(), old.text(), Math.max(0, old.weight() + delta));
+                pending.remove(old);
+                pending.add(updated);
+                pendingById.put(id, updated);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // До limit записей, чей ключ начинается с prefix: по убыванию веса, при равенстве — по алфавиту
+    public List<Entry> top(String prefix, int limit) {
+        String key = Tokenizer.normalize(prefix);
+        lock.readLock().lock();
+        try {
+            List<Item> result = new ArrayList<>(limit);
+            int from = lowerBound(key);
+            int to = lowerBound(key + Character.MAX_VALUE);
+
+            // Очередь отрезков по их лучшему элементу: извлекаем лучший и делим отрезок вокруг него
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> compare(b[2], a[2]));
+            if (from < to) {
+                ranges.add(new int[]{from, to, best(from, to)});
+            }
+            while (!ranges.isEmpty() && result.size() < limit) {
+                int[] range = ranges.poll();
+                int position = range[2];
+                if (weights[position] == REMOVED) {
+                    break;
+                }
+                result.add(new Item(keys[position], ids[position], texts[position], weights[position]));
+                if (range[0] < position) {
+                    ranges.add(new int[]{range[0], position, best(range[0], position)});
+                }
+                if (position + 1 < range[1]) {
+                    ranges.add(new int[]{position + 1, range[1], best(position + 1, range[1])});
+                }
+            }
+
+            // Дельта мала, её совпадения просто добавляются к кандидатам
+            if (!pending.isEmpty()) {
+                Item low = new Item(key, Integer.MIN_VALUE, null, 0);
+                Item high = new Item(key + Character.MAX_VALUE, Integer.MIN_VALUE, null, 0);
+                result.addAll(pending.subSet(low, true, high, false));
+                result.sort(Comparator.comparingInt(Item::weight).reversed().thenComparing(ORDER));
+            }
+
+            List<Entry> entries = new ArrayList<>(Math.min(limit, result.size()));
+            for (int i = 0; i < result.size() && i < limit; i++) {
+                entries.add(result.get(i).toEntry());
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return positions.size() + pending.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Оценка занимаемой памяти для 64-битной JVM со сжатыми указателями.
+     * Строки считаются по фактической кодировке (Latin-1 или UTF-16), совпадающие ключ и текст — один раз.
+     */
+    public Footprint footprint() {
+        lock.readLock().lock();
+        try {
+            long strings = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (weights[i] != REMOVED) {
+                    strings += stringSize(keys[i]) + (texts[i] == keys[i] ? 0 : stringSize(texts[i]));
+                }
+            }
+            // Массивы: две ссылки, id и вес по 4 байта, два узла дерева на позицию
+            long arrays = 4L * (keys.length + texts.length + ids.length + weights.length + tree.length);
+            // HashMap id -> позиция: узел, два Integer и ячейка таблицы
+            long positionMap = 72L * positions.size();
+            long delta = 0;
+            for (Item item : pending) {
+                // Запись, узел TreeMap и узел HashMap с ключом Integer
+                delta += 32 + 40 + 48 + stringSize(item.key()) + (item.text() == item.key() ? 0 : stringSize(item.text()));
+            }
+            long total = strings + arrays + positionMap + delta;
+            int entries = positions.size() + pending.size();
+            return new Footprint(entries, total, entries == 0 ? 0 : total / entries);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putItem(Item item) {
+        Integer position = positions.get(item.id());
+        if (position != null) {
+            if (keys[position].equals(item.key())) {
+                texts[position] = item.text();
+                setWeight(position, item.weight());
+                return;
+            }
+            markRemoved(position);
+        }
+        Item old = pendingById.put(item.id(), item);
+        if (old != null) {
+            pending.remove(old);
+        }
+        pending.add(item);
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (pending.size() + removed < MAX_PENDING) {
+            return;
+        }
+        List<Item> items = new ArrayList<>(positions.size() + pending.size());
+        for (int i = 0; i < keys.length; i++) {
+            if (weights[i] != REMOVED) {
+                items.add(new Item(keys[i], ids[i], texts[i], weights[i]));
+            }
+        }
+        items.addAll(pending);
+        pending.clear();
+        pendingById.clear();
+        load(items);
+    }
+
+    private void load(List<Item> items) {
+        // Основная часть уже упорядочена, дельта дописана в конец: сортировка слиянием почти линейна
+        items.sort(ORDER);
+        int n = items.size();
+        keys = new String[n];
+        texts = new String[n];
+        ids = new int[n];
+        weights = new int[n];
+        tree = new int[2 * n];
+        positions.clear();
+        for (int i = 0; i < n; i++) {
+            Item item = items.get(i);
+            keys[i] = item.key();
+            texts[i] = item.text();
+            ids[i] = item.id();
+            weights[i] = item.weight();
+            tree[n + i] = i;
+            positions.put(item.id(), i);
+        }
+        for (int node = n - 1; node > 0; node--) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+        removed = 0;
+    }
+
+    private void markRemoved(int position) {
+        positions.remove(ids[position]);
+        setWeight(position, REMOVED);
+        removed++;
+    }
+
+    private void setWeight(int position, int weight) {
+        weights[position] = weight;
+        int n = keys.length;
+        for (int node = (position + n) / 2; node > 0; node /= 2) {
+            tree[node] = better(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    // Позиция с наибольшим весом в [from, to)
+    private int best(int from, int to) {
+        int n = keys.length;
+        int result = -1;
+        for (int left = from + n, right = to + n; left < right; left /= 2, right /= 2) {
+            if ((left & 1) == 1) {
+                result = better(result, tree[left++]);
+            }
+            if ((right & 1) == 1) {
+                result = better(result, tree[--right]);
+            }
+        }
+        return result;
+    }
+
+    private int better(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return compare(a, b) >= 0 ? a : b;
+    }
+
+    // Больший вес лучше; при равенстве лучше позиция раньше по алфавиту
+    private int compare(int a, int b) {
+        int byWeight = Integer.compare(weights[a], weights[b]);
+        return byWeight != 0 ? byWeight : Integer.compare(b, a);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static long stringSize(String value) {
+        boolean latin1 = value.chars().allMatch(c -> c < 256);
+        long bytes = 16 + (long) value.length() * (latin1 ? 1 : 2);
+        // Объект String (24 байта) плюс массив, выровненный до 8 байт
+        return 24 + (bytes + 7) / 8 * 8;
+    }
+
+    private record Item(String key, int id, String text, int weight) {
+
+        static Item of(Entry entry) {
+            return new Item(Tokenizer.normalize(entry.text()), entry.id(), entry.text(), Math.max(0, entry.weight()));
+        }
+
+        Entry toEntry() {
+            return new Entry(id, text, weight);
+        }
+    }
+
+    public record Entry(int id, String text, int weight) {
+    }
+
+    public record Footprint(int entries, long estimatedBytes, long bytesPerEntry) {
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.storage.searchStorage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбиение текста на поисковые термы.
+ * Терм — непрерывная последовательность букв или цифр любого алфавита в нижнем регистре,
+ * "ё" приравнивается к "е". Однобуквенные слова (предлоги, союзы) отбрасываются, числа — нет.
+ */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    // Различные термы текста в порядке первого появления
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                addTerm(terms, normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return new ArrayList<>(terms);
+    }
+
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    private static void addTerm(Set<String> terms, String term) {
+        if (term.length() > 1 || Character.isDigit(term.charAt(0))) {
+            terms.add(term);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.storage.searchStorage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.repository.repository.UserRepository;
+
+import java.util.List;
+
+/**
+ * Автодополнение логинов пользователей; вес подсказки — сколько пользователей добавили его в друзья.
+ * Заполняется из БД при старте и поддерживается UserService при изменении пользователей и дружбы.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class UserSuggestIndex {
+
+    private final UserRepository userRepository;
+    private final PrefixIndex index = new PrefixIndex();
+
+    @PostConstruct
+    public void rebuild() {
+        index.rebuild(userRepository.findSuggestEntries());
+        log.info("Индекс подсказок по логинам построен: {}", index.footprint());
+    }
+
+    public List<PrefixIndex.Entry> suggest(String prefix, int limit) {
+        return index.top(prefix, limit);
+    }
+
+    public void onUserSaved(User user) {
+        index.putText(user.getId(), user.getLogin());
+    }
+
+    public void onUserDeleted(int userId) {
+        index.remove(userId);
+    }
+
+    public void onFollowerAdded(int userId) {
+        index.adjustWeight(userId, 1);
+    }
+
+    public void onFollowerRemoved(int userId) {
+        index.adjustWeight(userId, -1);
+    }
+
+    public PrefixIndex.Footprint footprint() {
+        return index.footprint();
+    }
+}
@@ -11,6 +11,7 @@ public class ReleaseDateAfterValidator implements ConstraintValidator<ReleaseDat
 
     @Override
     public boolean isValid(LocalDate value, ConstraintValidatorContext context) {
-        return !value.isBefore(MIN_DATE);
+        // Отсутствие даты проверяет @NotNull
+        return value == null || !value.isBefore(MIN_DATE);
     }
 }
@@ -26,7 +26,10 @@ CREATE TABLE IF NOT EXISTS users (
                                      email VARCHAR(100) NOT NULL UNIQUE,
     login VARCHAR(50) NOT NULL UNIQUE,
     name VARCHAR(100),
-    birthday DATE NOT NULL
+    birthday DATE NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    -- Мягкое удаление: строка скрыта от чтений, зависимые строки вычищает фоновая очистка
+    deleted BOOLEAN NOT NULL DEFAULT FALSE
     );
 
 -- 4. Фильмы (зависит от mpa_ratings)
@@ -37,6 +40,9 @@ CREATE TABLE IF NOT EXISTS films (
     release_date DATE NOT NULL,
     duration INTEGER NOT NULL CHECK (duration > 0),
     rating_id INTEGER,
+    likes_count INTEGER NOT NULL DEFAULT 0,
+    version BIGINT NOT NULL DEFAULT 0,
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
     FOREIGN KEY (rating_id) REFERENCES mpa_ratings(rating_id) ON DELETE SET NULL
     );
 
@@ -53,6 +59,7 @@ CREATE TABLE IF NOT EXISTS film_genres (
 CREATE TABLE IF NOT EXISTS likes (
                                      film_id INTEGER NOT NULL,
                                      user_id INTEGER NOT NULL,
+                                     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
                                      PRIMARY KEY (film_id, user_id),
     FOREIGN KEY (film_id) REFERENCES films(film_id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
@@ -74,8 +81,12 @@ CREATE INDEX IF NOT EXISTS idx_film_genres_film ON film_genres(film_id);
 CREATE INDEX IF NOT EXISTS idx_film_genres_genre ON film_genres(genre_id);
 CREATE INDEX IF NOT EXISTS idx_likes_film ON likes(film_id);
 CREATE INDEX IF NOT EXISTS idx_likes_user ON likes(user_id);
+CREATE INDEX IF NOT EXISTS idx_likes_created_at ON likes(created_at);
 CREATE INDEX IF NOT EXISTS idx_friends_user ON friends(user_id);
 CREATE INDEX IF NOT EXISTS idx_friends_friend ON friends(friend_id);
+-- Очередь фоновой очистки: мягко удалённые строки находятся без полного просмотра таблиц
+CREATE INDEX IF NOT EXISTS idx_users_deleted ON users(deleted, user_id);
+CREATE INDEX IF NOT EXISTS idx_films_deleted ON films(deleted, film_id);
 
 -- Заполнение справочника жанров
 MERGE INTO genres (genre_id, name) KEY(genre_id) VALUES
@@ -10,14 +10,21 @@ import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.film.Film;
 import ru.yandex.practicum.filmorate.model.film.MpaRating;
 import ru.yandex.practicum.filmorate.repository.repository.*;
+import ru.yandex.practicum.filmorate.storage.facetStorage.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.TrendingLikeCounter;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.GenreService;
+import ru.yandex.practicum.filmorate.service.MpaService;
 
 import java.time.LocalDate;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 /**
@@ -35,7 +42,12 @@ public class FilmControllerTest {
     private LikeRepository likeRepository;
     private UserRepository userRepository;
     private GenreService genreService;
-    private MpaRatingRepository mpaRepository;
+    private MpaService mpaService;
+    private FilmPopularityIndex popularityIndex;
+    private TrendingLikeCounter trendingCounter;
+    private FilmSearchIndex searchIndex;
+    private FilmSuggestIndex suggestIndex;
+    private FilmFacetIndex facetIndex;
 
 
     private static final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
@@ -48,8 +60,13 @@ public class FilmControllerTest {
         genreRepository = mock(GenreRepository.class);
         likeRepository = mock(LikeRepository.class);
         userRepository = mock(UserRepository.class);
-        mpaRepository = mock(MpaRatingRepository.class);
+        mpaService = mock(MpaService.class);
         genreService = mock(GenreService.class);
+        popularityIndex = mock(FilmPopularityIndex.class);
+        trendingCounter = mock(TrendingLikeCounter.class);
+        searchIndex = mock(FilmSearchIndex.class);
+        suggestIndex = mock(FilmSuggestIndex.class);
+        facetIndex = mock(FilmFacetIndex.class);
 
         // Создаем сервис с новой сигнатурой (5 параметров)
         filmService = new FilmService(
@@ -57,11 +74,12 @@ public class FilmControllerTest {
                 genreRepository,
                 likeRepository,
                 userRepository,
-                genreService, mpaRepository
+                genreService, mpaService,
+                popularityIndex, trendingCounter, searchIndex, suggestIndex, facetIndex
         );
 
         // Создаем контроллер
-        filmController = new FilmController(filmService);
+        filmController = new FilmController(filmService, 200);
     }
 
     private Film validFilm() {
@@ -162,8 +180,7 @@ public class FilmControllerTest {
         updatedFilm.setDuration(150);
 
         when(filmRepository.create(any(Film.class))).thenReturn(createdFilm);
-        when(filmRepository.findById(1)).thenReturn(Optional.of(createdFilm));
-        when(filmRepository.update(any(Film.class))).thenReturn(updatedFilm);
+        when(filmRepository.update(any(Film.class))).thenReturn(Optional.of(updatedFilm));
 
         // Act
         Film created = filmController.create(film);
@@ -188,7 +205,7 @@ public class FilmControllerTest {
         Film film = validFilm();
         film.setId(999); // несуществующий ID
 
-        when(filmRepository.findById(999)).thenReturn(Optional.empty());
+        when(filmRepository.update(any(Film.class))).thenReturn(Optional.empty());
 
         // Act & Assert
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
@@ -196,8 +213,7 @@ public class FilmControllerTest {
 
         assertTrue(exception.getMessage().contains("не найден"));
 
-        verify(filmRepository, times(1)).findById(999);
-        verify(filmRepository, never()).update(any(Film.class));
+        verify(filmRepository, never()).findById(anyInt()); // без предварительного чтения
     }
 
     @Test
@@ -230,18 +246,10 @@ public class FilmControllerTest {
         film2.setGenres(new LinkedHashSet<>());
 
         // Моки
-        when(mpaRepository.existsById(1)).thenReturn(true);
-        when(mpaRepository.findById(1)).thenReturn(mpa1);
-
         when(filmRepository.create(any(Film.class)))
                 .thenReturn(film1)
                 .thenReturn(film2);
 
-        when(filmRepository.findById(1)).thenReturn(Optional.of(film1));
-        when(filmRepository.findById(2)).thenReturn(Optional.of(film2));
-
-        when(genreRepository.getGenresByFilmId(anyInt())).thenReturn(new LinkedHashSet<>());
-
         when(filmRepository.findAll()).thenReturn(Arrays.asList(film1, film2));
 
         // Act
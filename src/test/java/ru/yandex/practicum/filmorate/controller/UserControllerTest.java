@@ -12,6 +12,7 @@ import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
 import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.repository.repository.FriendRepository;
 import ru.yandex.practicum.filmorate.repository.repository.UserRepository;
+import ru.yandex.practicum.filmorate.storage.searchStorage.UserSuggestIndex;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
@@ -23,6 +24,7 @@ import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 /**
@@ -35,6 +37,7 @@ class UserControllerTest {
     private UserService userService;
     private UserRepository userRepository;
     private FriendRepository friendRepository;
+    private UserSuggestIndex suggestIndex;
     private JdbcTemplate jdbcTemplate;
 
     private static final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
@@ -45,13 +48,14 @@ class UserControllerTest {
         // Создаем моки для зависимостей
         userRepository = Mockito.mock(UserRepository.class);
         friendRepository = Mockito.mock(FriendRepository.class);
+        suggestIndex = Mockito.mock(UserSuggestIndex.class);
         jdbcTemplate = Mockito.mock(JdbcTemplate.class);
 
         // Создаем сервис с моками
-        userService = new UserService(userRepository, friendRepository);
+        userService = new UserService(userRepository, friendRepository, suggestIndex);
 
         // Создаем контроллер
-        userController = new UserController(userService);
+        userController = new UserController(userService, 200);
     }
 
     private User createValidUser(String login, String name, String email, LocalDate birthday) {
@@ -151,8 +155,7 @@ class UserControllerTest {
 
         // Настройка моков
         when(userRepository.create(any(User.class))).thenReturn(existingUser);
-        when(userRepository.findById(1)).thenReturn(Optional.of(existingUser));
-        when(userRepository.update(any(User.class))).thenReturn(updatedUser);
+        when(userRepository.update(any(User.class))).thenReturn(Optional.of(updatedUser));
 
         // Act
         User created = userController.create(existingUser);
@@ -170,16 +173,15 @@ class UserControllerTest {
         User user = createValidUser("login", "Name", "test@example.com", LocalDate.of(2000, 1, 1));
         user.setId(999); // несуществующий ID
 
-        // Настройка мока: пользователь не найден
-        when(userRepository.findById(999)).thenReturn(Optional.empty());
+        // Настройка мока: UPDATE не нашёл строку
+        when(userRepository.update(any(User.class))).thenReturn(Optional.empty());
 
         // Act & Assert
         EntityNotFoundException exception = assertThrows(EntityNotFoundException.class,
                 () -> userController.update(user));
 
         assertTrue(exception.getMessage().contains("не найден"));
-        verify(userRepository, times(1)).findById(999);
-        verify(userRepository, never()).update(any(User.class)); // update не должен вызываться
+        verify(userRepository, never()).findById(anyInt()); // без предварительного чтения
     }
 
     @Test
@@ -218,8 +220,8 @@ class UserControllerTest {
         int existingUserId = 1;
 
         // Настройка моков: пользователи не найдены
-        when(userRepository.findById(999)).thenReturn(Optional.empty());
-        when(userRepository.findById(1)).thenReturn(Optional.empty());
+        when(userRepository.existsById(999)).thenReturn(false);
+        when(userRepository.existsById(1)).thenReturn(false);
 
         // Act & Assert
         assertThrows(EntityNotFoundException.class, () ->
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.repository.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.storage.cacheStorage.FilmCache;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для GenreRepository.
+ */
+class GenreRepositoryTest {
+
+    private static final String SELECT_SQL = "SELECT genre_id FROM film_genres WHERE film_id = ?";
+    private static final String DELETE_SQL = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+    private static final String INSERT_SQL = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+
+    private JdbcTemplate jdbc;
+    private FilmCache filmCache;
+    private GenreRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = mock(JdbcTemplate.class);
+        filmCache = mock(FilmCache.class);
+        repository = new GenreRepository(jdbc, filmCache);
+    }
+
+    @Test
+    void setGenresForFilm_shouldNotWriteWhenGenresUnchanged() {
+        when(jdbc.queryForList(SELECT_SQL, Integer.class, 1)).thenReturn(List.of(2, 1));
+
+        repository.setGenresForFilm(1, Set.of(new Genre(1), new Genre(2)));
+
+        verify(jdbc, never()).batchUpdate(anyString(), anyList());
+        verify(jdbc, never()).update(anyString(), any(Object[].class));
+        verifyNoInteractions(filmCache);
+    }
+
+    @Test
+    void setGenresForFilm_shouldCompareWithKnownGenresWithoutSelect() {
+        repository.setGenresForFilm(1, Set.of(new Genre(1), new Genre(3)), Set.of(1, 2));
+
+        verify(jdbc, never()).queryForList(anyString(), eq(Integer.class), any());
+        verify(jdbc).batchUpdate(eq(DELETE_SQL), argThat((List<Object[]> args) ->
+                args.size() == 1 && (int) args.get(0)[1] == 2));
+        verify(jdbc).batchUpdate(eq(INSERT_SQL), argThat((List<Object[]> args) ->
+                args.size() == 1 && (int) args.get(0)[1] == 3));
+        verify(filmCache).invalidate(1);
+    }
+
+    @Test
+    void setGenresForFilm_shouldApplyOnlyDifferenceInOneBatchEach() {
+        when(jdbc.queryForList(SELECT_SQL, Integer.class, 1)).thenReturn(List.of(1, 2, 3));
+
+        repository.setGenresForFilm(1, Set.of(new Genre(2), new Genre(4), new Genre(5)));
+
+        verify(jdbc, times(1)).batchUpdate(eq(DELETE_SQL), argThat((List<Object[]> args) ->
+                args.size() == 2 && args.stream().allMatch(row -> (int) row[0] == 1)
+                        && args.stream().map(row -> (Integer) row[1]).toList().containsAll(List.of(1, 3))));
+        verify(jdbc, times(1)).batchUpdate(eq(INSERT_SQL), argThat((List<Object[]> args) ->
+                args.size() == 2 && args.stream().map(row -> (Integer) row[1]).toList().containsAll(List.of(4, 5))));
+        verify(filmCache).invalidate(1);
+    }
+
+    @Test
+    void setGenresForFilm_shouldDeleteAllWhenGenresCleared() {
+        when(jdbc.queryForList(SELECT_SQL, Integer.class, 1)).thenReturn(List.of(1, 2));
+
+        repository.setGenresForFilm(1, null);
+
+        verify(jdbc, times(1)).batchUpdate(eq(DELETE_SQL), argThat((List<Object[]> args) -> args.size() == 2));
+        verify(jdbc, never()).batchUpdate(eq(INSERT_SQL), anyList());
+        verify(filmCache).invalidate(1);
+    }
+}
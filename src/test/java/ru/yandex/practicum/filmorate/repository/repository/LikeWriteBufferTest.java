@@ -0,0 +1,233 @@
+package ru.yandex.practicum.filmorate.repository.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для LikeWriteBuffer.
+ */
+class LikeWriteBufferTest {
+
+    private static final String UPDATE_COUNT_SQL = "UPDATE films SET likes_count = likes_count + ? WHERE film_id = ?";
+
+    private JdbcTemplate jdbc;
+    private LikeWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = mock(JdbcTemplate.class);
+        buffer = new LikeWriteBuffer(jdbc, mock(PlatformTransactionManager.class), true, 1_000);
+    }
+
+    @Test
+    void enqueueRemove_shouldCancelPendingAdd() {
+        Instant likedAt = Instant.now();
+        assertTrue(buffer.enqueueAdd(1, 2, likedAt));
+        assertEquals(Optional.of(likedAt), buffer.enqueueRemove(1, 2));
+
+        assertTrue(buffer.pendingState(1, 2).isEmpty());
+
+        buffer.flush();
+        verify(jdbc, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void enqueueAdd_shouldReportChangeOnceUnderParallelDuplicates() throws Exception {
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return buffer.enqueueAdd(1, 2, Instant.now());
+            }));
+        }
+        start.countDown();
+
+        int added = 0;
+        for (Future<Boolean> result : results) {
+            added += result.get(5, TimeUnit.SECONDS) ? 1 : 0;
+        }
+        executor.shutdown();
+        assertEquals(1, added);
+    }
+
+    @Test
+    void enqueueAdd_shouldConsultStoredLikeWhenNothingPending() {
+        Timestamp stored = Timestamp.from(Instant.parse("2024-01-01T00:00:00Z"));
+        when(jdbc.queryForList(anyString(), eq(Timestamp.class), eq(1), eq(2))).thenReturn(List.of(stored));
+
+        assertFalse(buffer.enqueueAdd(1, 2, Instant.now()));
+        assertEquals(Optional.of(stored.toInstant()), buffer.enqueueRemove(1, 2));
+        assertEquals(Optional.empty(), buffer.enqueueRemove(1, 2));
+    }
+
+    @Test
+    void enqueueAdd_shouldReadStoredLikeOutsideComputeAndRetryOnConflict() {
+        Instant first = Instant.parse("2024-01-01T00:00:00Z");
+        boolean[] nested = {false};
+        // Пока читается строка из БД, ту же пару успевает изменить другой вызов
+        when(jdbc.queryForList(anyString(), eq(Timestamp.class), eq(1), eq(2))).thenAnswer(invocation -> {
+            if (!nested[0]) {
+                nested[0] = true;
+                assertTrue(buffer.enqueueAdd(1, 2, first));
+            }
+            return List.of();
+        });
+
+        assertFalse(buffer.enqueueAdd(1, 2, Instant.now()));
+        assertEquals(first, buffer.pendingState(1, 2).orElseThrow().at());
+    }
+
+    @Test
+    void enqueue_shouldHoldOperationsUntilCommitAndDiscardThemOnRollback() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertTrue(buffer.enqueueAdd(1, 2, Instant.now()));
+            buffer.flush();
+            verify(jdbc, never()).batchUpdate(anyString(), anyList());
+            // Пару до завершения транзакции не меняет другой запрос
+            assertThrows(IllegalStateException.class, () -> runOutsideTransaction(() -> buffer.enqueueRemove(1, 2)));
+
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+
+        assertTrue(buffer.pendingState(1, 2).isEmpty());
+        assertTrue(buffer.pendingForFilm(1).isEmpty());
+        assertTrue(buffer.enqueueAdd(1, 2, Instant.now()));
+    }
+
+    @Test
+    void enqueue_shouldReleaseOperationsForFlushAfterCommit() {
+        when(jdbc.batchUpdate(eq(LikeRepository.INSERT_LIKE_IF_ABSENT), anyList())).thenReturn(new int[]{1});
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            buffer.enqueueAdd(1, 2, Instant.now());
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+
+        buffer.flush();
+
+        verify(jdbc, times(1)).batchUpdate(eq(LikeRepository.INSERT_LIKE_IF_ABSENT), anyList());
+        assertTrue(buffer.pendingState(1, 2).isEmpty());
+    }
+
+    @Test
+    void pendingLikeDelta_shouldNotCountRemoveOverInFlightAdd() {
+        int[] deltaDuringWrite = {Integer.MIN_VALUE};
+        when(jdbc.batchUpdate(eq(LikeRepository.INSERT_LIKE_IF_ABSENT), anyList())).thenAnswer(invocation -> {
+            // Добавление уже в пачке, но ещё не в likes_count; удаление поверх него возвращает счётчик к записанному
+            assertTrue(buffer.enqueueRemove(1, 2).isPresent());
+            deltaDuringWrite[0] = buffer.pendingLikeDelta(1);
+            return new int[]{1};
+        });
+        buffer.enqueueAdd(1, 2, Instant.now());
+        buffer.enqueueAdd(1, 3, Instant.now());
+        assertEquals(2, buffer.pendingLikeDelta(1));
+
+        buffer.flush();
+
+        // Пара (1, 3) в пачке даёт +1, пара (1, 2) — добавление в пачке и удаление в очереди — 0
+        assertEquals(1, deltaDuringWrite[0]);
+        assertEquals(-1, buffer.pendingLikeDelta(1));
+        assertFalse(buffer.pendingForFilm(1).get(2).liked());
+    }
+
+    @Test
+    void enqueue_shouldFlushOffCallerThreadAndRejectWhenOverloaded() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Set<String> flushThreads = ConcurrentHashMap.newKeySet();
+        when(jdbc.batchUpdate(eq(LikeRepository.INSERT_LIKE_IF_ABSENT), anyList())).thenAnswer(invocation -> {
+            flushThreads.add(Thread.currentThread().getName());
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            List<?> args = invocation.getArgument(1);
+            return new int[args.size()];
+        });
+        buffer = new LikeWriteBuffer(jdbc, mock(PlatformTransactionManager.class), true, 1);
+
+        buffer.enqueueAdd(1, 2, Instant.now());
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        buffer.enqueueAdd(1, 3, Instant.now());
+        buffer.enqueueAdd(1, 4, Instant.now());
+
+        assertThrows(ServiceUnavailableException.class, () -> buffer.enqueueAdd(1, 5, Instant.now()));
+        assertFalse(flushThreads.contains(Thread.currentThread().getName()));
+        release.countDown();
+    }
+
+    @Test
+    void pendingState_shouldExposeLatestUnflushedOperation() {
+        buffer.enqueueAdd(1, 2, Instant.now());
+
+        assertTrue(buffer.pendingState(1, 2).orElseThrow().liked());
+        assertEquals(1, buffer.pendingForFilm(1).size());
+        assertTrue(buffer.pendingForFilm(2).isEmpty());
+    }
+
+    @Test
+    void flush_shouldWriteAddsInOneBatchAndAdjustCounters() {
+        when(jdbc.batchUpdate(eq(LikeRepository.INSERT_LIKE_IF_ABSENT), anyList())).thenReturn(new int[]{1, 1});
+
+        buffer.enqueueAdd(1, 2, Instant.now());
+        buffer.enqueueAdd(1, 3, Instant.now());
+        buffer.flush();
+
+        verify(jdbc, times(1)).batchUpdate(eq(LikeRepository.INSERT_LIKE_IF_ABSENT), anyList());
+        verify(jdbc, times(1)).batchUpdate(eq(UPDATE_COUNT_SQL),
+                argThat((List<Object[]> args) -> args.size() == 1
+                        && args.get(0)[0].equals(2) && args.get(0)[1].equals(1)));
+        assertTrue(buffer.pendingState(1, 2).isEmpty());
+    }
+
+    @Test
+    void flush_shouldKeepOperationsWhenWriteFails() {
+        when(jdbc.batchUpdate(eq(LikeRepository.INSERT_LIKE_IF_ABSENT), anyList()))
+                .thenThrow(new RuntimeException("db down"));
+
+        buffer.enqueueAdd(1, 2, Instant.now());
+        buffer.flush();
+
+        assertTrue(buffer.pendingState(1, 2).orElseThrow().liked());
+    }
+
+    private static void completeTransaction(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    private static <T> T runOutsideTransaction(Callable<T> action) throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(action).get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
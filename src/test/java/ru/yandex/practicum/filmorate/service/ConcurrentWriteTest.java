@@ -0,0 +1,152 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.model.user.User;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.MpaRatingRowMapper;
+import ru.yandex.practicum.filmorate.repository.repository.*;
+import ru.yandex.practicum.filmorate.storage.cacheStorage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.facetStorage.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.TrendingLikeCounter;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.UserSuggestIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Параллельные записи на H2 в памяти. Повторы одного лайка и запроса в друзья дают ровно одну вставку,
+ * без ошибки 500 и без повторного учёта в индексах. Правки с одной и той же версией проходят один раз,
+ * остальные получают конфликт.
+ */
+class ConcurrentWriteTest {
+
+    private static final int THREADS = 16;
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate transaction;
+    private FilmService filmService;
+    private UserService userService;
+    private FilmPopularityIndex popularityIndex;
+    private UserSuggestIndex userSuggestIndex;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:duplicates" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transaction = new TransactionTemplate(transactionManager);
+
+        jdbc.update("INSERT INTO users (email, login, birthday) VALUES ('a@mail.ru', 'a', DATE '2000-01-01')");
+        jdbc.update("INSERT INTO users (email, login, birthday) VALUES ('b@mail.ru', 'b', DATE '2000-01-01')");
+        jdbc.update("INSERT INTO films (name, release_date, duration) VALUES ('Фильм', DATE '2000-01-01', 100)");
+
+        FilmCache filmCache = new FilmCache(100);
+        GenreRepository genreRepository = new GenreRepository(jdbc, filmCache);
+        FilmRepository filmRepository = new FilmRepository(jdbc, new FilmRowMapper(), genreRepository,
+                new MpaRatingRepository(jdbc, new MpaRatingRowMapper()), filmCache);
+        UserRepository userRepository = new UserRepository(jdbc);
+        LikeRepository likeRepository = new LikeRepository(jdbc,
+                new LikeWriteBuffer(jdbc, transactionManager, false, 0));
+
+        popularityIndex = mock(FilmPopularityIndex.class);
+        userSuggestIndex = mock(UserSuggestIndex.class);
+        filmService = new FilmService(filmRepository, genreRepository, likeRepository, userRepository,
+                mock(GenreService.class), mock(MpaService.class), popularityIndex, mock(TrendingLikeCounter.class),
+                mock(FilmSearchIndex.class), mock(FilmSuggestIndex.class), mock(FilmFacetIndex.class));
+        userService = new UserService(userRepository, new FriendRepository(jdbc), userSuggestIndex);
+    }
+
+    @Test
+    void addLike_shouldInsertOnceUnderParallelDuplicates() throws Exception {
+        List<Throwable> errors = runInParallel(() -> filmService.addLike(1, 1));
+
+        assertEquals(List.of(), errors);
+        assertEquals(1, count("SELECT COUNT(*) FROM likes WHERE film_id = 1 AND user_id = 1"));
+        assertEquals(1, count("SELECT likes_count FROM films WHERE film_id = 1"));
+        verify(popularityIndex, times(1)).onLikeAdded(1);
+    }
+
+    @Test
+    void addFriend_shouldInsertOnceAndRejectParallelDuplicatesAsBadRequest() throws Exception {
+        List<Throwable> errors = runInParallel(() -> userService.addFriend(1, 2));
+
+        assertEquals(THREADS - 1, errors.size());
+        errors.forEach(error -> assertInstanceOf(IllegalArgumentException.class, error));
+        assertEquals(1, count("SELECT COUNT(*) FROM friends WHERE user_id = 1 AND friend_id = 2"));
+        verify(userSuggestIndex, times(1)).onFollowerAdded(2);
+    }
+
+    @Test
+    void update_shouldAcceptOneEditPerVersionAndRejectStaleOnes() throws Exception {
+        List<Throwable> errors = runInParallel(() -> {
+            User user = new User();
+            user.setId(1);
+            user.setEmail("a@mail.ru");
+            user.setLogin("a");
+            user.setName(Thread.currentThread().getName());
+            user.setBirthday(LocalDate.of(2000, 1, 1));
+            user.setVersion(0L);
+            userService.update(user);
+        });
+
+        assertEquals(THREADS - 1, errors.size());
+        errors.forEach(error -> assertInstanceOf(IllegalStateException.class, error));
+        assertEquals(1, count("SELECT version FROM users WHERE user_id = 1"));
+
+        // Без версии правка безусловная, а несуществующий пользователь — 404, а не конфликт
+        User unversioned = userService.getUserById(1);
+        unversioned.setVersion(null);
+        assertEquals(2, userService.update(unversioned).getVersion());
+        unversioned.setId(999);
+        unversioned.setVersion(0L);
+        assertThrows(EntityNotFoundException.class, () -> userService.update(unversioned));
+    }
+
+    // Запускает action одновременно в THREADS транзакциях; возвращает выброшенные исключения
+    private List<Throwable> runInParallel(Runnable action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                transaction.executeWithoutResult(status -> action.run());
+                return null;
+            }));
+        }
+        start.countDown();
+        List<Throwable> errors = new ArrayList<>();
+        for (Future<?> future : futures) {
+            try {
+                future.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                errors.add(e.getCause());
+            }
+        }
+        executor.shutdown();
+        return errors;
+    }
+
+    private int count(String sql) {
+        return jdbc.queryForObject(sql, Integer.class);
+    }
+}
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.user.FriendshipStatus;
+import ru.yandex.practicum.filmorate.repository.mapper.FilmRowMapper;
+import ru.yandex.practicum.filmorate.repository.mapper.MpaRatingRowMapper;
+import ru.yandex.practicum.filmorate.repository.repository.*;
+import ru.yandex.practicum.filmorate.storage.cacheStorage.FilmCache;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.TrendingLikeCounter;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.UserSuggestIndex;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для DeletionPurger на H2 в памяти: мягкое удаление сразу скрывает запись,
+ * очистка удаляет зависимые строки порциями и обновляет счётчики живых фильмов и индексы.
+ */
+class DeletionPurgerTest {
+
+    private static final int CHUNK_SIZE = 3;
+    private static final int LIKED_FILMS = 7;
+
+    private JdbcTemplate jdbc;
+    private FilmRepository filmRepository;
+    private UserRepository userRepository;
+    private FilmPopularityIndex popularityIndex;
+    private TrendingLikeCounter trendingCounter;
+    private UserSuggestIndex userSuggestIndex;
+    private DeletionPurger purger;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:purge" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        jdbc.update("INSERT INTO users (email, login, birthday) VALUES ('a@mail.ru', 'a', DATE '2000-01-01')");
+        jdbc.update("INSERT INTO users (email, login, birthday) VALUES ('b@mail.ru', 'b', DATE '2000-01-01')");
+        for (int i = 1; i <= LIKED_FILMS; i++) {
+            jdbc.update("INSERT INTO films (name, release_date, duration, likes_count) " +
+                    "VALUES ('Фильм', DATE '2000-01-01', 100, 1)");
+            jdbc.update("INSERT INTO likes (film_id, user_id) VALUES (?, 1)", i);
+            jdbc.update("INSERT INTO film_genres (film_id, genre_id) VALUES (?, 1), (?, 2)", i, i);
+        }
+        jdbc.update("INSERT INTO friends (user_id, friend_id) VALUES (1, 2), (2, 1)");
+
+        FilmCache filmCache = new FilmCache(100);
+        GenreRepository genreRepository = new GenreRepository(jdbc, filmCache);
+        filmRepository = new FilmRepository(jdbc, new FilmRowMapper(), genreRepository,
+                new MpaRatingRepository(jdbc, new MpaRatingRowMapper()), filmCache);
+        userRepository = new UserRepository(jdbc);
+        LikeRepository likeRepository = new LikeRepository(jdbc,
+                new LikeWriteBuffer(jdbc, new DataSourceTransactionManager(dataSource), false, 0));
+
+        popularityIndex = mock(FilmPopularityIndex.class);
+        trendingCounter = mock(TrendingLikeCounter.class);
+        userSuggestIndex = mock(UserSuggestIndex.class);
+        purger = new DeletionPurger(filmRepository, userRepository, likeRepository, new FriendRepository(jdbc),
+                genreRepository, popularityIndex, trendingCounter, mock(FilmSuggestIndex.class), userSuggestIndex,
+                transaction, CHUNK_SIZE, 100);
+    }
+
+    @Test
+    void deleteById_shouldHideUserBeforePurge() {
+        assertTrue(userRepository.deleteById(1));
+
+        assertTrue(userRepository.findById(1).isEmpty());
+        assertFalse(userRepository.existsById(1));
+        assertFalse(userRepository.deleteById(1));
+        assertEquals(LIKED_FILMS, count("SELECT COUNT(*) FROM likes WHERE user_id = 1"));
+        assertEquals(1, purger.stats().pendingUsers());
+    }
+
+    @Test
+    void addLikeAndFriend_shouldSkipSoftDeletedRows() {
+        LikeRepository likeRepository = new LikeRepository(jdbc, mock(LikeWriteBuffer.class));
+        FriendRepository friendRepository = new FriendRepository(jdbc);
+        jdbc.update("DELETE FROM likes WHERE film_id = 2");
+        jdbc.update("DELETE FROM friends");
+        userRepository.deleteById(2);
+        filmRepository.deleteById(1);
+
+        assertFalse(likeRepository.addLike(2, 2, Instant.now()));
+        assertFalse(likeRepository.addLike(1, 1, Instant.now()));
+        assertFalse(friendRepository.add(1, 2, FriendshipStatus.CONFIRMED));
+        assertEquals(0, count("SELECT COUNT(*) FROM likes WHERE film_id = 2"));
+        assertEquals(0, count("SELECT COUNT(*) FROM friends"));
+        // Счётчик не увеличен: остался значением из подготовки данных
+        assertEquals(1, count("SELECT likes_count FROM films WHERE film_id = 2"));
+    }
+
+    @Test
+    void purge_shouldKeepUserWhileLikesRemainAndRemoveThemNextChunk() {
+        userRepository.deleteById(1);
+        jdbc.update("DELETE FROM likes WHERE user_id = 1");
+        jdbc.update("DELETE FROM friends");
+        // Лайк, записанный в гонке с удалением уже после того, как очистка всё вычистила
+        jdbc.update("INSERT INTO likes (film_id, user_id) VALUES (1, 1)");
+
+        assertFalse(userRepository.purge(1));
+
+        purger.purge();
+        assertEquals(0, count("SELECT COUNT(*) FROM users WHERE user_id = 1"));
+        verify(popularityIndex).onLikeRemoved(1);
+    }
+
+    @Test
+    void purge_shouldRemoveUserLikesAndFriendsInChunks() {
+        userRepository.deleteById(1);
+
+        DeletionPurger.Stats stats = purger.purge();
+
+        assertEquals(0, count("SELECT COUNT(*) FROM likes WHERE user_id = 1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM friends"));
+        assertEquals(0, count("SELECT COUNT(*) FROM users WHERE user_id = 1"));
+        assertEquals(0, count("SELECT SUM(likes_count) FROM films"));
+        assertEquals(1, stats.purgedUsers());
+        assertEquals(0, stats.pendingUsers());
+        assertEquals(LIKED_FILMS + 2, stats.purgedRows());
+        // 9 строк порциями по 3 и ещё одна порция на удаление самого пользователя
+        assertEquals(4, stats.chunks());
+        verify(popularityIndex, times(LIKED_FILMS)).onLikeRemoved(anyInt());
+        verify(trendingCounter, times(LIKED_FILMS)).onLikeRemoved(anyInt(), any());
+        verify(userSuggestIndex).onFollowerRemoved(2);
+    }
+
+    @Test
+    void purge_shouldNotCountLikesOfDeletedFilms() {
+        filmRepository.deleteById(1);
+        userRepository.deleteById(1);
+
+        purger.purge();
+
+        verify(popularityIndex, never()).onLikeRemoved(1);
+        verify(trendingCounter, never()).onLikeRemoved(eq(1), any());
+        verify(popularityIndex).onLikeRemoved(2);
+        assertEquals(0, count("SELECT COUNT(*) FROM films WHERE film_id = 1"));
+    }
+
+    @Test
+    void purge_shouldRemoveFilmLikesAndGenres() {
+        filmRepository.deleteById(1);
+        assertTrue(filmRepository.findById(1).isEmpty());
+
+        DeletionPurger.Stats stats = purger.purge();
+
+        assertEquals(0, count("SELECT COUNT(*) FROM likes WHERE film_id = 1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM film_genres WHERE film_id = 1"));
+        assertEquals(0, count("SELECT COUNT(*) FROM films WHERE film_id = 1"));
+        assertEquals(1, stats.purgedFilms());
+        assertEquals(3, stats.purgedRows());
+    }
+
+    @Test
+    void purge_shouldStopAtChunkBudgetAndContinueNextRun() {
+        DeletionPurger limited = new DeletionPurger(filmRepository, userRepository,
+                new LikeRepository(jdbc, mock(LikeWriteBuffer.class)), new FriendRepository(jdbc),
+                new GenreRepository(jdbc, new FilmCache(100)), popularityIndex, trendingCounter,
+                mock(FilmSuggestIndex.class), userSuggestIndex,
+                new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource())), CHUNK_SIZE, 2);
+        userRepository.deleteById(1);
+
+        DeletionPurger.Stats first = limited.purge();
+        assertEquals(1, first.pendingUsers());
+        assertEquals(2 * CHUNK_SIZE, first.lastRunRows());
+
+        limited.purge();
+        DeletionPurger.Stats second = limited.purge();
+        assertEquals(0, second.pendingUsers());
+        assertEquals(1, second.purgedUsers());
+    }
+
+    private int count(String sql) {
+        Integer value = jdbc.queryForObject(sql, Integer.class);
+        return value == null ? 0 : value;
+    }
+}
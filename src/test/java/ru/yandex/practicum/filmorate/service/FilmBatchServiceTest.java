@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.service;
+
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.FilmBatchResult;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.MpaRating;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.storage.facetStorage.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для FilmBatchService.
+ */
+class FilmBatchServiceTest {
+
+    private FilmRepository filmRepository;
+    private FilmPopularityIndex popularityIndex;
+    private FilmBatchService service;
+
+    @BeforeEach
+    void setUp() {
+        filmRepository = mock(FilmRepository.class);
+        GenreService genreService = mock(GenreService.class);
+        MpaService mpaService = mock(MpaService.class);
+        popularityIndex = mock(FilmPopularityIndex.class);
+
+        when(genreService.findById(anyInt())).thenReturn(Optional.empty());
+        when(genreService.findById(1)).thenReturn(Optional.of(new Genre(1, "Комедия")));
+        when(genreService.findById(2)).thenReturn(Optional.of(new Genre(2, "Драма")));
+        when(mpaService.findById(anyInt())).thenReturn(Optional.empty());
+        when(mpaService.findById(1)).thenReturn(Optional.of(new MpaRating(1, "G", "Без ограничений")));
+
+        // Репозиторий проставляет id по порядку, как batch INSERT
+        when(filmRepository.createBatch(any())).thenAnswer(invocation -> {
+            List<Film> films = invocation.getArgument(0);
+            for (int i = 0; i < films.size(); i++) {
+                films.get(i).setId(100 + i);
+                films.get(i).setVersion(0L);
+            }
+            return films;
+        });
+
+        service = new FilmBatchService(filmRepository, genreService, mpaService,
+                Validation.buildDefaultValidatorFactory().getValidator(), popularityIndex,
+                mock(FilmSearchIndex.class), mock(FilmSuggestIndex.class), mock(FilmFacetIndex.class));
+    }
+
+    @Test
+    void createBatch_shouldInsertValidFilmsOnceAndReportErrorsByIndex() {
+        Film blankName = film("", 1);
+        Film unknownMpa = film("Фильм без рейтинга", 9);
+        Film unknownGenre = film("Фильм с чужим жанром", 1, 7);
+
+        FilmBatchResult result = service.createBatch(
+                new ArrayList<>(Arrays.asList(film("Первый", 1, 2, 1), blankName, unknownMpa, film("Второй", null),
+                        unknownGenre)), 10);
+
+        assertEquals(2, result.created());
+        assertEquals(3, result.failed());
+        verify(filmRepository, times(1)).createBatch(any());
+
+        List<FilmBatchResult.Item> items = result.items();
+        assertEquals(100, items.get(0).film().getId());
+        assertEquals(List.of(1, 2), items.get(0).film().getGenres().stream().map(Genre::getId).toList());
+        assertEquals("G", items.get(0).film().getMpa().getName());
+        assertNotNull(items.get(1).error());
+        assertEquals("Рейтинг MPA с id 9 не найден", items.get(2).error());
+        assertEquals(101, items.get(3).film().getId());
+        assertEquals("Жанр с id 7 не найден", items.get(4).error());
+        verify(popularityIndex, times(2)).onFilmSaved(any());
+    }
+
+    @Test
+    void createBatch_shouldReportMissingReleaseDateAsItemError() {
+        Film noDate = film("Без даты", 1);
+        noDate.setReleaseDate(null);
+
+        FilmBatchResult result = service.createBatch(new ArrayList<>(List.of(film("С датой", 1), noDate)), 10);
+
+        assertEquals(1, result.created());
+        assertEquals("Дата релиза обязательна", result.items().get(1).error());
+    }
+
+    @Test
+    void createBatch_shouldRejectEmptyAndOversizedRequests() {
+        assertThrows(IllegalArgumentException.class, () -> service.createBatch(List.of(), 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createBatch(List.of(film("А", 1), film("Б", 1)), 1));
+        verifyNoInteractions(filmRepository);
+    }
+
+    private static Film film(String name, Integer mpaId, int... genreIds) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        if (mpaId != null) {
+            film.setMpa(new MpaRating(mpaId, null, null));
+        }
+        film.setGenres(Set.copyOf(Arrays.stream(genreIds).mapToObj(Genre::new).toList()));
+        return film;
+    }
+}
@@ -2,13 +2,24 @@ package ru.yandex.practicum.filmorate.service;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
 import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.exception.EntityNotFoundException;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.film.Film;
 import ru.yandex.practicum.filmorate.model.film.Genre;
 import ru.yandex.practicum.filmorate.model.film.MpaRating;
-import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.repository.repository.*;
-
+import ru.yandex.practicum.filmorate.storage.facetStorage.FilmFacetIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.TrendingLikeCounter;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.searchStorage.FilmSuggestIndex;
+
+import java.sql.SQLException;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -30,7 +41,12 @@ class FilmServiceTest {
     private LikeRepository likeRepository;
     private UserRepository userRepository;
     private GenreService genreService;
-    private MpaRatingRepository mpaRepository;
+    private MpaService mpaService;
+    private FilmPopularityIndex popularityIndex;
+    private TrendingLikeCounter trendingCounter;
+    private FilmSearchIndex searchIndex;
+    private FilmSuggestIndex suggestIndex;
+    private FilmFacetIndex facetIndex;
 
 
     @BeforeEach
@@ -40,8 +56,13 @@ class FilmServiceTest {
         genreRepository = mock(GenreRepository.class);
         likeRepository = mock(LikeRepository.class);
         userRepository = mock(UserRepository.class);
-        mpaRepository = mock(MpaRatingRepository.class);
+        mpaService = mock(MpaService.class);
         genreService = mock(GenreService.class);
+        popularityIndex = mock(FilmPopularityIndex.class);
+        trendingCounter = mock(TrendingLikeCounter.class);
+        searchIndex = mock(FilmSearchIndex.class);
+        suggestIndex = mock(FilmSuggestIndex.class);
+        facetIndex = mock(FilmFacetIndex.class);
 
         // Создаем сервис с новой сигнатурой (5 параметров)
         filmService = new FilmService(
@@ -49,11 +70,12 @@ class FilmServiceTest {
                 genreRepository,
                 likeRepository,
                 userRepository,
-                genreService, mpaRepository
+                genreService, mpaService,
+                popularityIndex, trendingCounter, searchIndex, suggestIndex, facetIndex
         );
 
         // Создаем контроллер
-        filmController = new FilmController(filmService);
+        filmController = new FilmController(filmService, 200);
     }
 
     @Test
@@ -80,11 +102,8 @@ class FilmServiceTest {
         createdFilm.setGenres(new LinkedHashSet<>());
 
         // Моки
-        when(mpaRepository.existsById(1)).thenReturn(true);
-        when(mpaRepository.findById(1)).thenReturn(mpa);
+        when(mpaService.findById(1)).thenReturn(Optional.of(mpa));
         when(filmRepository.create(any(Film.class))).thenReturn(createdFilm);
-        when(filmRepository.findById(1)).thenReturn(Optional.of(createdFilm));
-        when(genreRepository.getGenresByFilmId(1)).thenReturn(new LinkedHashSet<>());
 
         // Act
         Film result = filmService.create(film);
@@ -93,6 +112,7 @@ class FilmServiceTest {
         assertNotNull(result.getId());
         assertEquals(1, result.getId());
         verify(filmRepository, times(1)).create(any(Film.class));
+        verify(filmRepository, never()).findById(anyInt()); // ответ собирается без перечитывания
     }
 
     @Test
@@ -138,60 +158,90 @@ class FilmServiceTest {
     @Test
     void addLike_shouldAddLike() {
         // Arrange
-        Film film = new Film();
-        film.setId(1);
-
-        User user = new User();
-        user.setId(2);
-
-        when(filmRepository.findById(1)).thenReturn(Optional.of(film));
-        when(userRepository.findById(2)).thenReturn(Optional.of(user));
-        when(likeRepository.hasLike(1, 2)).thenReturn(false);
+        when(filmRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
+        when(likeRepository.addLike(eq(1), eq(2), any())).thenReturn(true);
 
         // Act
         filmService.addLike(1, 2);
 
-        // Assert
-        verify(likeRepository, times(1)).addLike(1, 2);
+        // Assert - в БД и в счётчик трендов уходит одно и то же время лайка
+        ArgumentCaptor<Instant> likedAt = ArgumentCaptor.forClass(Instant.class);
+        verify(likeRepository, times(1)).addLike(eq(1), eq(2), likedAt.capture());
+        verify(popularityIndex, times(1)).onLikeAdded(1);
+        verify(trendingCounter, times(1)).onLikeAdded(1, likedAt.getValue());
     }
 
     @Test
     void addLike_shouldNotThrowWhenAlreadyLiked() {
         // Arrange
-        Film film = new Film();
-        film.setId(1);
-
-        User user = new User();
-        user.setId(2);
-
-        when(filmRepository.findById(1)).thenReturn(Optional.of(film));
-        when(userRepository.findById(2)).thenReturn(Optional.of(user));
-        when(likeRepository.hasLike(1, 2)).thenReturn(true); // Уже есть лайк
+        when(filmRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
+        when(likeRepository.addLike(eq(1), eq(2), any())).thenReturn(false); // Уже есть лайк
+        when(likeRepository.hasLike(1, 2)).thenReturn(true);
 
         // Act - не должно выбросить исключение
         filmService.addLike(1, 2);
 
-        // Assert - лайк НЕ добавляется повторно
-        verify(likeRepository, never()).addLike(anyInt(), anyInt());
+        // Assert - повторный лайк не меняет рейтинги
+        verify(likeRepository, times(1)).addLike(eq(1), eq(2), any());
+        verify(popularityIndex, never()).onLikeAdded(anyInt());
     }
 
     @Test
-    void removeLike_shouldRemoveLike() {
-        // Arrange
-        Film film = new Film();
-        film.setId(1);
+    void addLike_shouldThrowNotFoundWhenNothingInsertedAndNoLikeExists() {
+        when(filmRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
+        when(likeRepository.addLike(eq(1), eq(2), any())).thenReturn(false); // Фильм удалён после проверки
 
-        User user = new User();
-        user.setId(2);
+        assertThrows(EntityNotFoundException.class, () -> filmService.addLike(1, 2));
+        verify(popularityIndex, never()).onLikeAdded(anyInt());
+    }
 
-        when(filmRepository.findById(1)).thenReturn(Optional.of(film));
-        when(userRepository.findById(2)).thenReturn(Optional.of(user));
+    @Test
+    void addLike_shouldThrowNotFoundWithoutLoadingFilm() {
+        when(filmRepository.existsById(1)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> filmService.addLike(1, 2));
+        verify(filmRepository, never()).findById(anyInt());
+        verifyNoInteractions(likeRepository);
+    }
+
+    @Test
+    void addLike_shouldTranslateForeignKeyViolationToNotFound() {
+        when(filmRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
+        when(likeRepository.addLike(eq(1), eq(2), any())).thenThrow(new DataIntegrityViolationException("FK_LIKES_FILM",
+                new SQLException("Referential integrity constraint violation", "23506")));
+
+        assertThrows(EntityNotFoundException.class, () -> filmService.addLike(1, 2));
+    }
+
+    @Test
+    void addLike_shouldNotReportOtherIntegrityErrorsAsNotFound() {
+        when(filmRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
+        when(likeRepository.addLike(eq(1), eq(2), any())).thenThrow(new DataIntegrityViolationException("CHECK",
+                new SQLException("Check constraint violation", "23513")));
+
+        assertThrows(DataIntegrityViolationException.class, () -> filmService.addLike(1, 2));
+    }
+
+    @Test
+    void removeLike_shouldRemoveLike() {
+        // Arrange
+        when(filmRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
+        Instant likedAt = Instant.now();
+        when(likeRepository.removeLike(1, 2)).thenReturn(Optional.of(likedAt));
 
         // Act
         filmService.removeLike(1, 2);
 
         // Assert
         verify(likeRepository, times(1)).removeLike(1, 2);
+        verify(popularityIndex, times(1)).onLikeRemoved(1);
+        verify(trendingCounter, times(1)).onLikeRemoved(1, likedAt);
     }
 
     @Test
@@ -205,25 +255,22 @@ class FilmServiceTest {
         film2.setId(2);
         film2.setName("Less Popular Film");
 
-        when(filmRepository.findAll()).thenReturn(Arrays.asList(film1, film2));
-        when(likeRepository.countLikes(1)).thenReturn(10);
-        when(likeRepository.countLikes(2)).thenReturn(5);
+        when(popularityIndex.topFilmIds(1, null, null)).thenReturn(List.of(1));
+        when(filmRepository.findByIds(List.of(1))).thenReturn(List.of(film1));
 
         // Act
-        Collection<Film> topFilms = filmService.getTopMostLikedFilms(1);
+        Collection<Film> topFilms = filmService.getTopMostLikedFilms(1, null, null);
 
         // Assert
         assertEquals(1, topFilms.size());
         assertEquals("Popular Film", topFilms.iterator().next().getName());
+        verify(filmRepository, never()).findAll();
+        verify(likeRepository, never()).countLikes(anyInt());
     }
 
     @Test
     void update_shouldUpdateFilm() {
         // Arrange
-        Film existingFilm = new Film();
-        existingFilm.setId(1);
-        existingFilm.setName("Old Name");
-
         Film updatedFilm = new Film();
         updatedFilm.setId(1);
         updatedFilm.setName("New Name");
@@ -231,8 +278,7 @@ class FilmServiceTest {
         updatedFilm.setReleaseDate(LocalDate.of(2021, 1, 1));
         updatedFilm.setDuration(150);
 
-        when(filmRepository.findById(1)).thenReturn(Optional.of(existingFilm));
-        when(filmRepository.update(any(Film.class))).thenReturn(updatedFilm);
+        when(filmRepository.update(any(Film.class))).thenReturn(Optional.of(updatedFilm));
 
         // Act
         Film result = filmService.update(updatedFilm);
@@ -240,6 +286,33 @@ class FilmServiceTest {
         // Assert
         assertEquals("New Name", result.getName());
         verify(filmRepository, times(1)).update(any(Film.class));
+        verify(filmRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    void update_shouldThrowConflictWhenVersionIsStale() {
+        Film film = new Film();
+        film.setId(1);
+        film.setName("Новое название");
+        film.setVersion(3L);
+
+        when(filmRepository.update(film)).thenReturn(Optional.empty());
+        when(filmRepository.existsById(1)).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> filmService.update(film));
+        verifyNoInteractions(popularityIndex);
+    }
+
+    @Test
+    void update_shouldThrowNotFoundWhenFilmMissing() {
+        Film film = new Film();
+        film.setId(999);
+        film.setVersion(0L);
+
+        when(filmRepository.update(film)).thenReturn(Optional.empty());
+        when(filmRepository.existsById(999)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> filmService.update(film));
     }
 
     @Test
@@ -284,12 +357,9 @@ class FilmServiceTest {
         createdFilm.setGenres(new LinkedHashSet<>(Arrays.asList(genre)));
 
         // Моки
-        when(mpaRepository.existsById(1)).thenReturn(true);
-        when(mpaRepository.findById(1)).thenReturn(mpa);
+        when(mpaService.findById(1)).thenReturn(Optional.of(mpa));
         when(genreService.getGenreById(1)).thenReturn(genre);
         when(filmRepository.create(any(Film.class))).thenReturn(createdFilm);
-        when(filmRepository.findById(1)).thenReturn(Optional.of(createdFilm));
-        when(genreRepository.getGenresByFilmId(1)).thenReturn(new LinkedHashSet<>(Arrays.asList(genre)));
         doNothing().when(genreService).validateGenres(any());
 
         // Act
@@ -300,4 +370,63 @@ class FilmServiceTest {
         verify(genreService, times(1)).validateGenres(any());
         verify(genreService, times(1)).getGenreById(1); // Проверка заполнения жанров
     }
-}
\ No newline at end of file
+
+    @Test
+    void getFilmsPage_shouldReturnNextCursorWhenMoreFilmsExist() {
+        // Arrange: репозиторий отдаёт limit + 1 строк
+        List<Film> rows = new ArrayList<>();
+        for (int id = 11; id <= 13; id++) {
+            Film film = new Film();
+            film.setId(id);
+            rows.add(film);
+        }
+        when(filmRepository.findPage(10, 3)).thenReturn(rows);
+
+        // Act
+        Page<Film> page = filmService.getFilmsPage(10, 2);
+
+        // Assert
+        assertEquals(2, page.items().size());
+        assertEquals(12, page.nextCursor());
+    }
+
+    @Test
+    void getFilmsPage_shouldReturnNullCursorOnLastPage() {
+        Film film = new Film();
+        film.setId(5);
+        when(filmRepository.findPage(0, 11)).thenReturn(List.of(film));
+
+        Page<Film> page = filmService.getFilmsPage(0, 10);
+
+        assertEquals(1, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void getFilmsPage_shouldRejectInvalidLimit() {
+        assertThrows(IllegalArgumentException.class, () -> filmService.getFilmsPage(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> filmService.getFilmsPage(0, Page.MAX_LIMIT + 1));
+        verify(filmRepository, never()).findPage(anyInt(), anyInt());
+    }
+
+    @Test
+    void getFilmsByIds_shouldKeepRequestedOrderAndReportMissing() {
+        Film first = new Film();
+        first.setId(1);
+        Film third = new Film();
+        third.setId(3);
+        when(filmRepository.findByIds(List.of(3, 2, 1))).thenReturn(List.of(first, third));
+
+        MultiGetResult<Film> result = filmService.getFilmsByIds(List.of(3, 2, 1, 3), 10);
+
+        assertEquals(List.of(third, first), result.items());
+        assertEquals(List.of(2), result.missingIds());
+        verify(filmRepository, times(1)).findByIds(List.of(3, 2, 1));
+    }
+
+    @Test
+    void getFilmsByIds_shouldRejectTooManyIds() {
+        assertThrows(IllegalArgumentException.class, () -> filmService.getFilmsByIds(List.of(1, 2, 3), 2));
+        verify(filmRepository, never()).findByIds(any());
+    }
+}
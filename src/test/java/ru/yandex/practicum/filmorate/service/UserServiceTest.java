@@ -3,14 +3,18 @@ package ru.yandex.practicum.filmorate.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.MultiGetResult;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.user.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.user.User;
 import ru.yandex.practicum.filmorate.repository.repository.FriendRepository;
 import ru.yandex.practicum.filmorate.repository.repository.UserRepository;
+import ru.yandex.practicum.filmorate.storage.searchStorage.UserSuggestIndex;
 
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,32 +29,26 @@ class UserServiceTest {
     private UserService userService;
     private UserRepository userRepository;
     private FriendRepository friendRepository;
+    private UserSuggestIndex suggestIndex;
     private JdbcTemplate jdbcTemplate;
 
     @BeforeEach
     void setUp() {
         userRepository = mock(UserRepository.class);
         friendRepository = mock(FriendRepository.class);
+        suggestIndex = mock(UserSuggestIndex.class);
         jdbcTemplate = mock(JdbcTemplate.class);
 
         // Создаем сервис
-        userService = new UserService(userRepository, friendRepository);
+        userService = new UserService(userRepository, friendRepository, suggestIndex);
     }
 
     @Test
     void addFriend_shouldAddUsersToEachOtherFriends() {
         // Arrange
-        User user = new User();
-        user.setId(1);
-        user.setEmail("user@mail.ru");
-
-        User friend = new User();
-        friend.setId(2);
-        friend.setEmail("friend@mail.ru");
-
-        when(userRepository.findById(1)).thenReturn(Optional.of(user));
-        when(userRepository.findById(2)).thenReturn(Optional.of(friend));
-        when(friendRepository.exists(1, 2)).thenReturn(false);
+        when(userRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
+        when(friendRepository.add(1, 2, FriendshipStatus.CONFIRMED)).thenReturn(true);
 
         // Act
         userService.addFriend(1, 2);
@@ -62,14 +60,8 @@ class UserServiceTest {
     @Test
     void removeFriend_shouldRemoveUsersFromEachOtherFriends() {
         // Arrange
-        User user = new User();
-        user.setId(1);
-
-        User friend = new User();
-        friend.setId(2);
-
-        when(userRepository.findById(1)).thenReturn(Optional.of(user));
-        when(userRepository.findById(2)).thenReturn(Optional.of(friend));
+        when(userRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
 
         // Act
         userService.removeFriend(1, 2);
@@ -100,17 +92,12 @@ class UserServiceTest {
     @Test
     void update_shouldUpdateUser() {
         // Arrange
-        User existingUser = new User();
-        existingUser.setId(1);
-        existingUser.setEmail("old@mail.ru");
-
         User updatedUser = new User();
         updatedUser.setId(1);
         updatedUser.setEmail("user@mail.ru");
         updatedUser.setName("Updated Name");
 
-        when(userRepository.findById(1)).thenReturn(Optional.of(existingUser));
-        when(userRepository.update(any(User.class))).thenReturn(updatedUser);
+        when(userRepository.update(any(User.class))).thenReturn(Optional.of(updatedUser));
 
         // Act
         User result = userService.update(updatedUser);
@@ -118,19 +105,31 @@ class UserServiceTest {
         // Assert
         assertEquals("Updated Name", result.getName());
         verify(userRepository, times(1)).update(any(User.class));
+        verify(userRepository, never()).findById(anyInt());
     }
 
     @Test
-    void getFriendsById_shouldReturnFriends() {
-        // Arrange
+    void update_shouldThrowConflictWhenVersionIsStale() {
         User user = new User();
         user.setId(1);
+        user.setLogin("login");
+        user.setVersion(2L);
 
+        when(userRepository.update(user)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1)).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> userService.update(user));
+        verifyNoInteractions(suggestIndex);
+    }
+
+    @Test
+    void getFriendsById_shouldReturnFriends() {
+        // Arrange
         User friend = new User();
         friend.setId(2);
         friend.setEmail("friend@mail.ru");
 
-        when(userRepository.findById(1)).thenReturn(Optional.of(user));
+        when(userRepository.existsById(1)).thenReturn(true);
         when(friendRepository.findFriends(1)).thenReturn(Arrays.asList(friend));
 
         // Act
@@ -145,18 +144,12 @@ class UserServiceTest {
     @Test
     void getCommonFriends_shouldReturnCommonFriends() {
         // Arrange
-        User user1 = new User();
-        user1.setId(1);
-
-        User user2 = new User();
-        user2.setId(2);
-
         User common = new User();
         common.setId(3);
         common.setEmail("common@mail.ru");
 
-        when(userRepository.findById(1)).thenReturn(Optional.of(user1));
-        when(userRepository.findById(2)).thenReturn(Optional.of(user2));
+        when(userRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
         when(friendRepository.getCommonFriends(1, 2)).thenReturn(Arrays.asList(common));
 
         // Act
@@ -244,11 +237,8 @@ class UserServiceTest {
     @Test
     void addFriend_shouldThrowWhenUserNotFound() {
         // Arrange
-        User user = new User();
-        user.setId(1);
-
-        when(userRepository.findById(1)).thenReturn(Optional.of(user));
-        when(userRepository.findById(999)).thenReturn(Optional.empty());
+        when(userRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(999)).thenReturn(false);
 
         // Act & Assert
         assertThrows(Exception.class, () -> {
@@ -260,20 +250,52 @@ class UserServiceTest {
     @Test
     void addFriend_shouldThrowWhenAlreadyFriends() {
         // Arrange
-        User user = new User();
-        user.setId(1);
-
-        User friend = new User();
-        friend.setId(2);
-
-        when(userRepository.findById(1)).thenReturn(Optional.of(user));
-        when(userRepository.findById(2)).thenReturn(Optional.of(friend));
-        when(friendRepository.exists(1, 2)).thenReturn(true); // Уже друзья
+        when(userRepository.existsById(1)).thenReturn(true);
+        when(userRepository.existsById(2)).thenReturn(true);
+        when(friendRepository.add(1, 2, FriendshipStatus.CONFIRMED)).thenReturn(false); // Уже друзья
+        when(friendRepository.exists(1, 2)).thenReturn(true);
 
         // Act & Assert
         assertThrows(IllegalArgumentException.class, () -> {
             userService.addFriend(1, 2);
         });
-        verify(friendRepository, never()).add(anyInt(), anyInt(), any());
+        verify(suggestIndex, never()).onFollowerAdded(anyInt());
+    }
+
+    @Test
+    void addFriend_shouldRejectSelfFriendshipAsBadRequest() {
+        assertThrows(IllegalArgumentException.class, () -> userService.addFriend(1, 1));
+        verifyNoInteractions(friendRepository);
+    }
+
+    @Test
+    void getUsersPage_shouldReturnNextCursorWhenMoreUsersExist() {
+        // Arrange: репозиторий отдаёт limit + 1 строк
+        User first = new User();
+        first.setId(3);
+        User second = new User();
+        second.setId(7);
+        when(userRepository.findPage(0, 2)).thenReturn(Arrays.asList(first, second));
+
+        // Act
+        Page<User> page = userService.getUsersPage(0, 1);
+
+        // Assert
+        assertEquals(1, page.items().size());
+        assertEquals(3, page.nextCursor());
+    }
+
+    @Test
+    void getUsersByIds_shouldKeepRequestedOrderAndReportMissing() {
+        User first = new User();
+        first.setId(1);
+        User second = new User();
+        second.setId(2);
+        when(userRepository.findByIds(List.of(2, 5, 1))).thenReturn(Arrays.asList(first, second));
+
+        MultiGetResult<User> result = userService.getUsersByIds(List.of(2, 5, 1), 200);
+
+        assertEquals(List.of(second, first), result.items());
+        assertEquals(List.of(5), result.missingIds());
     }
-}
\ No newline at end of file
+}
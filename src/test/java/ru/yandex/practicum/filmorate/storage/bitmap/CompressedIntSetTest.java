@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.storage.bitmap;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для CompressedIntSet.
+ */
+class CompressedIntSetTest {
+
+    @Test
+    void addRemoveContains_shouldTrackCardinality() {
+        CompressedIntSet set = new CompressedIntSet();
+
+        assertTrue(set.add(5));
+        assertFalse(set.add(5));
+        assertTrue(set.add(70_000));
+        assertTrue(set.contains(5));
+        assertTrue(set.contains(70_000));
+        assertFalse(set.contains(6));
+        assertEquals(2, set.cardinality());
+
+        assertTrue(set.remove(5));
+        assertFalse(set.remove(5));
+        assertEquals(1, set.cardinality());
+        assertArrayEquals(new int[]{70_000}, set.toArray());
+    }
+
+    @Test
+    void denseRange_shouldSwitchContainerAndBack() {
+        CompressedIntSet set = new CompressedIntSet();
+        for (int i = 0; i < 10_000; i++) {
+            set.add(i);
+        }
+        assertEquals(10_000, set.cardinality());
+        // 10000 значений плотным контейнером — 8 КБ вместо 20 КБ массивом
+        assertTrue(set.estimateSizeInBytes() < 9_000);
+
+        for (int i = 0; i < 10_000; i += 2) {
+            set.remove(i);
+        }
+        assertEquals(5_000, set.cardinality());
+        assertTrue(set.contains(9_999));
+        assertFalse(set.contains(9_998));
+    }
+
+    @Test
+    void setOperations_shouldMatchTreeSet() {
+        Random random = new Random(42);
+        CompressedIntSet a = new CompressedIntSet();
+        CompressedIntSet b = new CompressedIntSet();
+        TreeSet<Integer> expectedA = new TreeSet<>();
+        TreeSet<Integer> expectedB = new TreeSet<>();
+        // Разреженные и плотные участки, чтобы задеть все сочетания контейнеров
+        for (int i = 0; i < 30_000; i++) {
+            int x = random.nextInt(200_000);
+            int y = random.nextBoolean() ? random.nextInt(10_000) : random.nextInt(1_000_000);
+            a.add(x);
+            expectedA.add(x);
+            b.add(y);
+            expectedB.add(y);
+        }
+
+        TreeSet<Integer> and = new TreeSet<>(expectedA);
+        and.retainAll(expectedB);
+        TreeSet<Integer> or = new TreeSet<>(expectedA);
+        or.addAll(expectedB);
+        TreeSet<Integer> andNot = new TreeSet<>(expectedA);
+        andNot.removeAll(expectedB);
+
+        assertArrayEquals(toArray(expectedA), a.toArray());
+        assertArrayEquals(toArray(and), a.and(b).toArray());
+        assertEquals(and.size(), a.andCardinality(b));
+        assertArrayEquals(toArray(or), a.or(b).toArray());
+        assertEquals(or.size(), a.or(b).cardinality());
+        assertArrayEquals(toArray(andNot), a.andNot(b).toArray());
+    }
+
+    @Test
+    void copy_shouldBeIndependent() {
+        CompressedIntSet set = CompressedIntSet.of(1, 2, 3);
+        CompressedIntSet copy = set.copy();
+
+        copy.add(4);
+        set.remove(1);
+
+        assertEquals("[2, 3]", set.toString());
+        assertEquals("[1, 2, 3, 4]", copy.toString());
+    }
+
+    @Test
+    void valuesAfter_shouldPageThroughArrayAndBitmapContainers() {
+        CompressedIntSet set = new CompressedIntSet();
+        TreeSet<Integer> expected = new TreeSet<>();
+        // Плотный первый контейнер и разреженный второй
+        for (int i = 0; i < 70_000; i += i < 65_536 ? 3 : 50) {
+            set.add(i);
+            expected.add(i);
+        }
+
+        int after = -1;
+        int pages = 0;
+        for (int[] page = set.valuesAfter(after, 1000); page.length > 0; page = set.valuesAfter(after, 1000)) {
+            assertArrayEquals(expected.tailSet(after, false).stream().limit(1000).mapToInt(Integer::intValue).toArray(), page);
+            after = page[page.length - 1];
+            pages++;
+        }
+
+        assertEquals((expected.size() + 999) / 1000, pages);
+        assertArrayEquals(new int[]{65_538, 65_588}, set.valuesAfter(65_536, 2));
+    }
+
+    private static int[] toArray(TreeSet<Integer> set) {
+        return set.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.storage.cacheStorage;
+
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.MpaRating;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для FilmCache.
+ */
+class FilmCacheTest {
+
+    @Test
+    void get_shouldReturnCopyThatCannotCorruptCache() {
+        FilmCache cache = new FilmCache(10);
+        cache.put(film(1), cache.loadStamp());
+
+        Film first = cache.get(1).orElseThrow();
+        first.setName("Испорчено");
+        first.getGenres().clear();
+        first.getMpa().setName("X");
+
+        Film second = cache.get(1).orElseThrow();
+        assertEquals("Фильм 1", second.getName());
+        assertEquals(Set.of(new Genre(1)), second.getGenres());
+        assertEquals("G", second.getMpa().getName());
+    }
+
+    @Test
+    void put_shouldStoreCopyOfCallerInstance() {
+        FilmCache cache = new FilmCache(10);
+        Film film = film(1);
+        cache.put(film, cache.loadStamp());
+
+        film.setName("Изменён после put");
+
+        assertEquals("Фильм 1", cache.get(1).orElseThrow().getName());
+    }
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsed() {
+        FilmCache cache = new FilmCache(2);
+        cache.put(film(1), cache.loadStamp());
+        cache.put(film(2), cache.loadStamp());
+        cache.get(1);
+        cache.put(film(3), cache.loadStamp());
+
+        assertTrue(cache.get(1).isPresent());
+        assertTrue(cache.get(2).isEmpty());
+        assertTrue(cache.get(3).isPresent());
+        assertEquals(1, cache.stats().evictions());
+        assertEquals(2, cache.stats().size());
+    }
+
+    @Test
+    void invalidate_shouldDropEntryAndRejectStaleLoad() {
+        FilmCache cache = new FilmCache(10);
+        cache.put(film(1), cache.loadStamp());
+
+        // Загрузка началась до изменения фильма, а закончилась после
+        long stamp = cache.loadStamp();
+        cache.invalidate(1);
+        cache.put(film(1), stamp);
+
+        assertTrue(cache.get(1).isEmpty());
+    }
+
+    @Test
+    void stats_shouldCountHitsAndMisses() {
+        FilmCache cache = new FilmCache(10);
+        cache.get(1);
+        cache.put(film(1), cache.loadStamp());
+        cache.get(1);
+        cache.get(1);
+
+        FilmCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(2.0 / 3, stats.hitRate(), 1e-9);
+    }
+
+    private static Film film(int id) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName("Фильм " + id);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        film.setGenres(Set.of(new Genre(1, "Комедия")));
+        film.setMpa(new MpaRating(1, "G", null));
+        return film;
+    }
+}
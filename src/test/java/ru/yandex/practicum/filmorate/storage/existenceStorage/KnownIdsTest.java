@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.storage.existenceStorage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для KnownIds.
+ */
+class KnownIdsTest {
+
+    @Test
+    void contains_shouldLoadOnceAndAnswerHitsFromMemory() {
+        int[] loads = {0};
+        List<Integer> probes = new ArrayList<>();
+        KnownIds ids = new KnownIds(() -> {
+            loads[0]++;
+            return bits(1, 5, 70_000);
+        }, id -> {
+            probes.add(id);
+            return false;
+        });
+
+        assertTrue(ids.contains(1));
+        assertTrue(ids.contains(70_000));
+        assertTrue(ids.contains(5));
+        assertEquals(1, loads[0]);
+        assertTrue(probes.isEmpty());
+        assertEquals(3, ids.size());
+    }
+
+    @Test
+    void contains_shouldProbeMissAndRememberFoundId() {
+        List<Integer> probes = new ArrayList<>();
+        KnownIds ids = new KnownIds(() -> bits(1), id -> {
+            probes.add(id);
+            return id == 2;
+        });
+
+        assertTrue(ids.contains(2));
+        assertTrue(ids.contains(2));
+        assertFalse(ids.contains(3));
+        assertEquals(List.of(2, 3), probes);
+    }
+
+    @Test
+    void onCreatedAndOnDeleted_shouldUpdateSetWithoutTransaction() {
+        KnownIds ids = new KnownIds(() -> bits(1), id -> false);
+        assertFalse(ids.contains(2));
+
+        ids.onCreated(2);
+        ids.onDeleted(1);
+
+        assertTrue(ids.contains(2));
+        assertFalse(ids.contains(1));
+    }
+
+    private static BitSet bits(int... values) {
+        BitSet bits = new BitSet();
+        for (int value : values) {
+            bits.set(value);
+        }
+        return bits;
+    }
+}
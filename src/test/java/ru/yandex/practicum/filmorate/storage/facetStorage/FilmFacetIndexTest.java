@@ -0,0 +1,98 @@
+package ru.yandex.practicum.filmorate.storage.facetStorage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.MpaRating;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Тесты для FilmFacetIndex.
+ */
+class FilmFacetIndexTest {
+
+    private static final FilmFacetIndex.Filter NO_FILTER = new FilmFacetIndex.Filter(null, null, null, null, null, null);
+
+    private FilmFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FilmFacetIndex(mock(FilmRepository.class));
+        index.onFilmSaved(film(1, 1, 2001, 95, 1));
+        index.onFilmSaved(film(2, 3, 2010, 130, 1, 2));
+        index.onFilmSaved(film(3, 3, 1995, 85, 2));
+        index.onFilmSaved(film(4, 3, 2005, 110, 4));
+        index.onFilmSaved(film(5, null, 2020, 200));
+    }
+
+    @Test
+    void select_shouldIntersectFacetsAndCountEachWithoutItsOwnFilter() {
+        FilmFacetIndex.Filter filter = new FilmFacetIndex.Filter(Set.of(2, 4), Set.of(3), 2000, null, null, 120);
+
+        FilmFacetIndex.Selection selection = index.select(filter, 0, 10);
+
+        assertEquals(1, selection.total());
+        assertEquals(List.of(4), selection.ids());
+        assertEquals(Map.of(1, 0, 2, 0, 4, 1), selection.facets().genres());
+        assertEquals(Map.of(1, 0, 3, 1), selection.facets().mpa());
+        assertEquals(Map.of(1990, 1, 2000, 1, 2010, 0, 2020, 0), selection.facets().decades());
+        assertEquals(Map.of(60, 0, 90, 1, 120, 1, 180, 0), selection.facets().durations());
+    }
+
+    @Test
+    void select_shouldPageByIdWithoutFilter() {
+        FilmFacetIndex.Selection first = index.select(NO_FILTER, 0, 2);
+        FilmFacetIndex.Selection second = index.select(NO_FILTER, 2, 2);
+
+        assertEquals(5, first.total());
+        assertEquals(List.of(1, 2), first.ids());
+        assertEquals(List.of(3, 4), second.ids());
+        assertEquals(Map.of(1, 2, 2, 2, 4, 1), first.facets().genres());
+    }
+
+    @Test
+    void onFilmSavedAndDeleted_shouldMoveFilmBetweenBitmaps() {
+        index.onFilmSaved(film(4, 1, 2005, 110, 1));
+        index.onFilmDeleted(5);
+
+        FilmFacetIndex.Selection selection = index.select(NO_FILTER, 0, 10);
+
+        assertEquals(List.of(1, 2, 3, 4), selection.ids());
+        assertEquals(Map.of(1, 3, 2, 2), selection.facets().genres());
+        assertEquals(Map.of(1, 2, 3, 2), selection.facets().mpa());
+        assertFalse(selection.facets().decades().containsKey(2020));
+    }
+
+    @Test
+    void select_shouldReturnNothingForUnknownValue() {
+        FilmFacetIndex.Filter filter = new FilmFacetIndex.Filter(Set.of(99), null, null, null, null, null);
+
+        assertEquals(0, index.select(filter, 0, 10).total());
+    }
+
+    private static Film film(int id, Integer mpaId, int year, int duration, int... genreIds) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName("Фильм " + id);
+        film.setReleaseDate(LocalDate.of(year, 1, 1));
+        film.setDuration(duration);
+        if (mpaId != null) {
+            MpaRating mpa = new MpaRating();
+            mpa.setId(mpaId);
+            film.setMpa(mpa);
+        }
+        film.setGenres(Arrays.stream(genreIds).mapToObj(Genre::new).collect(Collectors.toSet()));
+        return film;
+    }
+}
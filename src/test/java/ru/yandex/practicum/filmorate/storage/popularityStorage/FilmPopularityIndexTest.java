@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.storage.popularityStorage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.repository.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.repository.LikeRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для FilmPopularityIndex.
+ */
+class FilmPopularityIndexTest {
+
+    private LikeRepository likeRepository;
+    private FilmPopularityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        likeRepository = mock(LikeRepository.class);
+        FilmRepository filmRepository = mock(FilmRepository.class);
+        GenreRepository genreRepository = mock(GenreRepository.class);
+
+        // Фильм 1: комедия 2023 года, 5 лайков; фильм 2: драма 2023 года, 7 лайков; фильм 3: комедия 2010 года, 9 лайков
+        when(likeRepository.countLikesByFilm()).thenReturn(Map.of(1, 5, 2, 7, 3, 9));
+        when(filmRepository.findReleaseYears()).thenReturn(Map.of(1, 2023, 2, 2023, 3, 2010));
+        when(genreRepository.findGenreIdsByFilm()).thenReturn(Map.of(1, Set.of(1), 2, Set.of(2), 3, Set.of(1)));
+
+        index = new FilmPopularityIndex(likeRepository, filmRepository, genreRepository);
+        index.rebuild();
+    }
+
+    @Test
+    void topFilmIds_shouldFilterByGenreYearAndBoth() {
+        assertEquals(List.of(3, 2, 1), index.topFilmIds(10, null, null));
+        assertEquals(List.of(3, 1), index.topFilmIds(10, 1, null));
+        assertEquals(List.of(2, 1), index.topFilmIds(10, null, 2023));
+        assertEquals(List.of(1), index.topFilmIds(10, 1, 2023));
+        assertEquals(List.of(), index.topFilmIds(10, 6, null));
+    }
+
+    @Test
+    void rebuild_shouldServeOldLeaderboardsUntilNewOnesArePublished() {
+        List<List<Integer>> seenDuringRebuild = new ArrayList<>();
+        when(likeRepository.countLikesByFilm()).thenAnswer(invocation -> {
+            seenDuringRebuild.add(index.topFilmIds(10, null, null));
+            seenDuringRebuild.add(index.topFilmIds(10, 1, null));
+            return Map.of(1, 20, 2, 7, 3, 9);
+        });
+
+        index.rebuild();
+
+        assertEquals(List.of(List.of(3, 2, 1), List.of(3, 1)), seenDuringRebuild);
+        assertEquals(List.of(1, 3), index.topFilmIds(10, 1, null));
+    }
+
+    @Test
+    void onLikeAdded_shouldUpdateSecondaryLeaderboards() {
+        // 5 + 5 = 10 лайков: фильм 1 обгоняет и фильм 2 (7), и фильм 3 (9)
+        for (int i = 0; i < 5; i++) {
+            index.onLikeAdded(1);
+        }
+
+        assertEquals(List.of(1, 2), index.topFilmIds(10, null, 2023));
+        assertEquals(List.of(1, 3), index.topFilmIds(10, 1, null));
+    }
+
+    @Test
+    void onFilmSaved_shouldMoveFilmBetweenGenresAndKeepScore() {
+        Film film = new Film();
+        film.setId(3);
+        film.setReleaseDate(LocalDate.of(2023, 5, 1));
+        film.setGenres(Set.of(new Genre(2)));
+
+        index.onFilmSaved(film);
+
+        assertEquals(List.of(1), index.topFilmIds(10, 1, null));
+        assertEquals(List.of(3, 2), index.topFilmIds(10, 2, null));
+        assertEquals(List.of(3, 2, 1), index.topFilmIds(10, null, 2023));
+    }
+
+    @Test
+    void onFilmDeleted_shouldRemoveFilmEverywhere() {
+        index.onFilmDeleted(3);
+
+        assertEquals(List.of(2, 1), index.topFilmIds(10, null, null));
+        assertEquals(List.of(1), index.topFilmIds(10, 1, null));
+        assertEquals(List.of(), index.topFilmIds(10, null, 2010));
+    }
+
+    @Test
+    void versionTag_shouldChangeOnEveryModification() {
+        String initial = index.versionTag();
+        assertEquals(initial, index.versionTag());
+
+        index.onLikeAdded(1);
+        String afterLike = index.versionTag();
+        assertNotEquals(initial, afterLike);
+
+        index.onFilmDeleted(2);
+        assertNotEquals(afterLike, index.versionTag());
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.storage.popularityStorage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для Leaderboard.
+ */
+class LeaderboardTest {
+
+    @Test
+    void top_shouldOrderByScoreThenById() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.put(1, 5);
+        leaderboard.put(2, 10);
+        leaderboard.put(3, 5);
+        leaderboard.put(4, 0);
+
+        assertEquals(List.of(2, 1, 3), leaderboard.top(3));
+        assertEquals(List.of(2, 1, 3, 4), leaderboard.top(100));
+    }
+
+    @Test
+    void increment_shouldMoveFilmInRanking() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.replaceAll(Map.of(1, 1, 2, 2));
+
+        leaderboard.increment(1, 2);
+
+        assertEquals(List.of(1, 2), leaderboard.top(2));
+        assertEquals(3, leaderboard.score(1).getAsInt());
+    }
+
+    @Test
+    void increment_shouldIgnoreUnknownFilmAndNeverGoNegative() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.put(1, 0);
+
+        leaderboard.increment(1, -1);
+        leaderboard.increment(99, 1);
+
+        assertEquals(0, leaderboard.score(1).getAsInt());
+        assertTrue(leaderboard.score(99).isEmpty());
+    }
+
+    @Test
+    void remove_shouldDropFilmFromRanking() {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.put(1, 3);
+        leaderboard.put(2, 1);
+
+        leaderboard.remove(1);
+
+        assertEquals(List.of(2), leaderboard.top(10));
+        assertEquals(1, leaderboard.size());
+    }
+
+    @Test
+    void increment_shouldNotLoseUpdatesUnderConcurrency() throws InterruptedException {
+        Leaderboard leaderboard = new Leaderboard();
+        leaderboard.put(1, 0);
+        leaderboard.put(2, 0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 10_000; i++) {
+            int filmId = i % 2 + 1;
+            executor.submit(() -> leaderboard.increment(filmId, 1));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(5_000, leaderboard.score(1).getAsInt());
+        assertEquals(5_000, leaderboard.score(2).getAsInt());
+        assertEquals(2, leaderboard.top(10).size());
+    }
+}
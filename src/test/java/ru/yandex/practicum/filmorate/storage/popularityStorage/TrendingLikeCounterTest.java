@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.storage.popularityStorage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.repository.repository.LikeRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Тесты для TrendingLikeCounter.
+ */
+class TrendingLikeCounterTest {
+
+    private TrendingLikeCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        counter = new TrendingLikeCounter(mock(LikeRepository.class), Duration.ofHours(1), Duration.ofDays(7));
+    }
+
+    @Test
+    void top_shouldCountOnlyLikesInsideWindow() {
+        Instant now = Instant.now();
+        counter.add(1, now.minus(Duration.ofHours(30)), 1);
+        counter.add(1, now.minus(Duration.ofHours(30)), 1);
+        counter.add(1, now.minus(Duration.ofHours(30)), 1);
+        counter.add(2, now.minus(Duration.ofHours(2)), 1);
+
+        assertEquals(List.of(2), counter.top(Duration.ofHours(24), 10, now));
+        assertEquals(List.of(1, 2), counter.top(Duration.ofDays(2), 10, now));
+    }
+
+    @Test
+    void rebuild_shouldKeepOldBucketsVisibleAndApplyConcurrentLikeToNewOnes() throws Exception {
+        LikeRepository likeRepository = mock(LikeRepository.class);
+        counter = new TrendingLikeCounter(likeRepository, Duration.ofHours(1), Duration.ofDays(7));
+        Instant now = Instant.now();
+        counter.add(2, now, 1);
+
+        List<List<Integer>> seenDuringRebuild = new ArrayList<>();
+        Thread concurrentLike = new Thread(() -> counter.onLikeAdded(7, now));
+        doAnswer(invocation -> {
+            seenDuringRebuild.add(counter.top(Duration.ofHours(24), 10, now));
+            // Лайк, зафиксированный во время перестроения, ждёт его окончания
+            concurrentLike.start();
+            BiConsumer<Integer, Instant> action = invocation.getArgument(1);
+            action.accept(5, now);
+            action.accept(5, now);
+            return null;
+        }).when(likeRepository).forEachLikeSince(any(), any());
+
+        counter.rebuild();
+        concurrentLike.join(5_000);
+
+        assertEquals(List.of(List.of(2)), seenDuringRebuild);
+        assertEquals(List.of(5, 7), counter.top(Duration.ofHours(24), 10, now));
+    }
+
+    @Test
+    void onLikeRemoved_shouldDecrementBucketOfOriginalLike() {
+        Instant now = Instant.now();
+        Instant likedAt = now.minus(Duration.ofHours(5));
+        counter.add(1, likedAt, 1);
+        counter.add(2, now, 1);
+
+        counter.onLikeRemoved(1, likedAt);
+
+        assertEquals(List.of(2), counter.top(Duration.ofHours(24), 10, now));
+    }
+
+    @Test
+    void evictExpired_shouldDropBucketsOlderThanMaxWindow() {
+        Instant now = Instant.now();
+        counter.add(1, now.minus(Duration.ofDays(6)), 1);
+        counter.add(1, now, 1);
+        assertEquals(2, counter.bucketCount());
+
+        counter.evictExpired(now.plus(Duration.ofDays(2)));
+
+        assertEquals(1, counter.bucketCount());
+    }
+
+    @Test
+    void parseWindow_shouldAcceptMinutesHoursAndDays() {
+        assertEquals(Duration.ofMinutes(90), counter.parseWindow("90m"));
+        assertEquals(Duration.ofHours(24), counter.parseWindow("24h"));
+        assertEquals(Duration.ofDays(7), counter.parseWindow("7d"));
+        assertThrows(IllegalArgumentException.class, () -> counter.parseWindow("8d"));
+        assertThrows(IllegalArgumentException.class, () -> counter.parseWindow("24"));
+        assertThrows(IllegalArgumentException.class, () -> counter.parseWindow("999999999999999d"));
+    }
+}
@@ -0,0 +1,58 @@
+package ru.yandex.practicum.filmorate.storage.referenceStorage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Genre;
+import ru.yandex.practicum.filmorate.model.film.MpaRating;
+import ru.yandex.practicum.filmorate.repository.repository.GenreRepository;
+import ru.yandex.practicum.filmorate.repository.repository.MpaRatingRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для ReferenceDataRegistry.
+ */
+class ReferenceDataRegistryTest {
+
+    private GenreRepository genreRepository;
+    private MpaRatingRepository mpaRatingRepository;
+    private ReferenceDataRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        genreRepository = mock(GenreRepository.class);
+        mpaRatingRepository = mock(MpaRatingRepository.class);
+        when(genreRepository.findAll()).thenReturn(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")));
+        when(mpaRatingRepository.findAll()).thenReturn(List.of(new MpaRating(1, "G", null)));
+
+        registry = new ReferenceDataRegistry(genreRepository, mpaRatingRepository);
+        registry.reload();
+    }
+
+    @Test
+    void lookups_shouldReturnSharedInstancesWithoutQueries() {
+        Genre first = registry.findGenre(2).orElseThrow();
+        Genre second = registry.findGenre(2).orElseThrow();
+
+        assertSame(first, second);
+        assertEquals("Драма", first.getName());
+        assertEquals("G", registry.findMpa(1).orElseThrow().getName());
+        assertTrue(registry.findGenre(99).isEmpty());
+        assertTrue(registry.findMpa(null).isEmpty());
+
+        // Справочники прочитаны один раз при загрузке
+        verify(genreRepository, times(1)).findAll();
+        verify(mpaRatingRepository, times(1)).findAll();
+        verifyNoMoreInteractions(genreRepository, mpaRatingRepository);
+    }
+
+    @Test
+    void lists_shouldBeImmutable() {
+        assertEquals(2, registry.getGenres().size());
+        assertThrows(UnsupportedOperationException.class, () -> registry.getGenres().clear());
+        assertThrows(UnsupportedOperationException.class, () -> registry.getMpaRatings().clear());
+    }
+}
@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage.searchStorage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.model.film.Film;
+import ru.yandex.practicum.filmorate.repository.repository.FilmRepository;
+import ru.yandex.practicum.filmorate.storage.popularityStorage.FilmPopularityIndex;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Тесты для FilmSearchIndex и Tokenizer.
+ */
+class FilmSearchIndexTest {
+
+    private FilmPopularityIndex popularityIndex;
+    private FilmSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        popularityIndex = mock(FilmPopularityIndex.class);
+        index = new FilmSearchIndex(mock(FilmRepository.class), popularityIndex);
+
+        index.onFilmSaved(film(1, "Ёлки", "Новогодняя комедия о чудесах"));
+        index.onFilmSaved(film(2, "Брат 2", "Криминальная драма, продолжение фильма Брат"));
+        index.onFilmSaved(film(3, "Комедия ошибок", "Экранизация пьесы"));
+    }
+
+    @Test
+    void tokenize_shouldLowercaseSplitAndNormalizeYo() {
+        assertEquals(List.of("елки", "брат", "2", "the", "matrix"),
+                Tokenizer.tokenize("Ёлки, БРАТ-2 и The Matrix: брат"));
+    }
+
+    @Test
+    void search_shouldRequireAllTermsAndIgnoreCase() {
+        assertEquals(List.of(1), ids(index.search("елки КОМЕДИЯ", 10)));
+        assertEquals(List.of(2), ids(index.search("брат 2", 10)));
+        assertEquals(0, index.search("брат комедия", 10).total());
+        assertEquals(0, index.search("несуществующее", 10).total());
+    }
+
+    @Test
+    void search_shouldRankNameMatchesAboveDescriptionMatches() {
+        FilmSearchIndex.SearchResult result = index.search("комедия", 10);
+
+        assertEquals(2, result.total());
+        assertEquals(List.of(3, 1), ids(result));
+    }
+
+    @Test
+    void search_shouldBoostPopularFilms() {
+        when(popularityIndex.likesOf(1)).thenReturn(1000);
+
+        assertEquals(List.of(1, 3), ids(index.search("комедия", 10)));
+        assertEquals(List.of(1), ids(index.search("комедия", 1)));
+    }
+
+    @Test
+    void onFilmSaved_shouldReplaceOldTerms() {
+        index.onFilmSaved(film(3, "Ирония судьбы", "Экранизация пьесы"));
+
+        assertEquals(List.of(1), ids(index.search("комедия", 10)));
+        assertEquals(List.of(3), ids(index.search("судьбы", 10)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void onFilmDeleted_shouldRemoveFilmFromResults() {
+        index.onFilmDeleted(2);
+
+        assertEquals(0, index.search("брат", 10).total());
+        assertEquals(2, index.size());
+    }
+
+    private static List<Integer> ids(FilmSearchIndex.SearchResult result) {
+        return result.hits().stream().map(FilmSearchIndex.SearchHit::id).toList();
+    }
+
+    private static Film film(int id, String name, String description) {
+        Film film = new Film();
+        film.setId(id);
+        film.setName(name);
+        film.setDescription(description);
+        return film;
+    }
+}
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.storage.searchStorage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Тесты для PrefixIndex.
+ */
+class PrefixIndexTest {
+
+    private PrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PrefixIndex();
+        index.rebuild(List.of(
+                new PrefixIndex.Entry(1, "Матрица", 50),
+                new PrefixIndex.Entry(2, "Мастер и Маргарита", 80),
+                new PrefixIndex.Entry(3, "Ёжик в тумане", 10),
+                new PrefixIndex.Entry(4, "Марсианин", 50),
+                new PrefixIndex.Entry(5, "Brother", 5)
+        ));
+    }
+
+    @Test
+    void top_shouldReturnHeaviestMatchesIgnoringCaseAndYo() {
+        assertEquals(List.of(2, 4, 1), ids(index.top("ма", 10)));
+        assertEquals(List.of(2, 4), ids(index.top("МА", 2)));
+        assertEquals(List.of(3), ids(index.top("ежик", 10)));
+        assertEquals(List.of(5), ids(index.top("bro", 10)));
+        assertEquals(List.of(), ids(index.top("мх", 10)));
+    }
+
+    @Test
+    void putText_shouldRenameAndKeepWeight() {
+        index.putText(1, "Бригада");
+        index.putText(6, "Маугли");
+
+        assertEquals(List.of(2, 4, 6), ids(index.top("ма", 10)));
+        assertEquals(new PrefixIndex.Entry(1, "Бригада", 50), index.top("бр", 1).get(0));
+        assertEquals(6, index.size());
+    }
+
+    @Test
+    void adjustWeightAndRemove_shouldReorderAndHideEntries() {
+        index.adjustWeight(1, 100);
+        index.remove(2);
+
+        assertEquals(List.of(1, 4), ids(index.top("ма", 10)));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void top_shouldStayCorrectAcrossCompaction() {
+        for (int id = 1; id <= 10_000; id++) {
+            index.put(new PrefixIndex.Entry(id, "film" + id, id % 100));
+        }
+        for (int id = 1; id <= 10_000; id += 2) {
+            index.remove(id);
+        }
+
+        List<PrefixIndex.Entry> top = index.top("film", 3);
+        // При равном весе порядок алфавитный: "film1098" < "film1198" < "film198"
+        assertEquals(List.of(1098, 1198, 1298), ids(top));
+        assertEquals(5_000, index.size());
+        assertTrue(index.footprint().bytesPerEntry() > 0);
+    }
+
+    @Test
+    void validateQuery_shouldRejectBlankPrefixAndBadLimit() {
+        assertThrows(IllegalArgumentException.class, () -> PrefixIndex.validateQuery(" ", 10));
+        assertThrows(IllegalArgumentException.class, () -> PrefixIndex.validateQuery("ма", 0));
+        assertThrows(IllegalArgumentException.class, () -> PrefixIndex.validateQuery("ма", PrefixIndex.MAX_LIMIT + 1));
+    }
+
+    private static List<Integer> ids(List<PrefixIndex.Entry> entries) {
+        return entries.stream().map(PrefixIndex.Entry::id).toList();
+    }
+}